@@ -0,0 +1,141 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/*
+Structure of the class and the reasons behind it.
+1. Multiplying millions of small pairs one call at a time allocates a new product array for every pair.
+2. Here all the products go into one contiguous array. Product i takes x.length + y.length positions,
+so the position of every product is known before any multiplication starts.
+3. Each pair is multiplied with SingleDigitMultiplication.multiplyInto straight into its own positions,
+which allocates nothing for small numbers.
+4. Since the pairs never share positions, they can also be multiplied on several threads at once.
+5. The operands can be given as arrays of digit arrays, or as one flat array of digits with offsets
+(number i is digits[offsets[i]] up to digits[offsets[i + 1]]), which is how the products are returned too.
+ */
+
+public class BatchMultiplication {
+
+    /**
+     * Multiplies xs[i] by ys[i] for every i.
+     *
+     * @param xs digits of the first number of each pair, most significant digit first
+     * @param ys digits of the second number of each pair, most significant digit first
+     * @param base base of the digits
+     * @param parallel true to spread the pairs over the common fork/join pool
+     * @return all the products in one array
+     */
+    public static Products multiplyAll(int[][] xs, int[][] ys, int base, boolean parallel) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Got " + xs.length + " first numbers and " + ys.length + " second numbers");
+        }
+        int[] offsets = new int[xs.length + 1];
+        for (int i = 0; i < xs.length; i++) {
+            offsets[i + 1] = offsets[i] + xs[i].length + ys[i].length;
+        }
+        int[] digits = new int[offsets[xs.length]];
+        int[] starts = new int[xs.length];
+        forEachPair(xs.length, parallel, i -> starts[i] = SingleDigitMultiplication.multiplyInto(
+                xs[i], 0, xs[i].length, ys[i], 0, ys[i].length, base, digits, offsets[i]));
+        return new Products(digits, offsets, starts);
+    } // method multiplyAll
+
+    /**
+     * Multiplies the pairs stored in two flat arrays. Number i of each array is
+     * digits[offsets[i]] up to (but not including) digits[offsets[i + 1]].
+     *
+     * @param xDigits digits of all the first numbers, most significant digit first
+     * @param xOffsets where each first number starts, plus the end of the last one
+     * @param yDigits digits of all the second numbers, most significant digit first
+     * @param yOffsets where each second number starts, plus the end of the last one
+     * @param base base of the digits
+     * @param parallel true to spread the pairs over the common fork/join pool
+     * @return all the products in one array
+     */
+    public static Products multiplyAll(int[] xDigits, int[] xOffsets, int[] yDigits, int[] yOffsets,
+            int base, boolean parallel) {
+        if (xOffsets.length != yOffsets.length || xOffsets.length == 0) {
+            throw new IllegalArgumentException("Offsets must have the same, non-zero length");
+        }
+        int pairs = xOffsets.length - 1;
+        int[] offsets = new int[pairs + 1];
+        for (int i = 0; i < pairs; i++) {
+            offsets[i + 1] = offsets[i] + (xOffsets[i + 1] - xOffsets[i]) + (yOffsets[i + 1] - yOffsets[i]);
+        }
+        int[] digits = new int[offsets[pairs]];
+        int[] starts = new int[pairs];
+        forEachPair(pairs, parallel, i -> starts[i] = SingleDigitMultiplication.multiplyInto(
+                xDigits, xOffsets[i], xOffsets[i + 1] - xOffsets[i],
+                yDigits, yOffsets[i], yOffsets[i + 1] - yOffsets[i], base, digits, offsets[i]));
+        return new Products(digits, offsets, starts);
+    } // method multiplyAll
+
+    /** Runs the action for pairs 0 to pairs - 1, in order or on several threads */
+    private static void forEachPair(int pairs, boolean parallel, IntConsumer action) {
+        if (parallel) {
+            IntStream.range(0, pairs).parallel().forEach(action);
+        } else {
+            for (int i = 0; i < pairs; i++) {
+                action.accept(i);
+            }
+        }
+    } // method forEachPair
+
+    /**
+     * The products of a batch, all stored in one array. Product i takes digits[offset(i)] up to
+     * digits[end(i)], and its first significant digit is at start(i) (one past the offset when the
+     * product has a leading zero).
+     */
+    public static class Products {
+
+        /** Digits of every product, most significant digit first */
+        private final int[] digits;
+        /** Where the positions of each product begin, plus the end of the last one */
+        private final int[] offsets;
+        /** Where the significant digits of each product begin */
+        private final int[] starts;
+
+        /** Full constructor */
+        private Products(int[] digits, int[] offsets, int[] starts) {
+            this.digits = digits;
+            this.offsets = offsets;
+            this.starts = starts;
+        } // full constructor
+
+        /** Returns the number of products */
+        public int size() {
+            return this.starts.length;
+        } // method size
+
+        /** Returns the array that holds every product. It is not copied. */
+        public int[] getDigits() {
+            return this.digits;
+        } // method getDigits
+
+        /** Returns the position where product i begins, leading zero included */
+        public int offset(int i) {
+            return this.offsets[i];
+        } // method offset
+
+        /** Returns the position of the first significant digit of product i */
+        public int start(int i) {
+            return this.starts[i];
+        } // method start
+
+        /** Returns the position just after the last digit of product i */
+        public int end(int i) {
+            return this.offsets[i + 1];
+        } // method end
+
+        /**
+         * Copies product i out of the shared array.
+         *
+         * @return the same array SingleDigitMultiplication.multiply returns for pair i
+         */
+        public int[] get(int i) {
+            return Arrays.copyOfRange(this.digits, this.starts[i], this.offsets[i + 1]);
+        } // method get
+
+    } // class Products
+
+} // class BatchMultiplication
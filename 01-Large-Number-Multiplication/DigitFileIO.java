@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+Structure of the class and the reasons behind it.
+1. Big numbers are kept in text files as plain decimal digits, possibly split over several lines.
+2. Reading the file into a String and converting each character would build a huge String first.
+3. Instead the file is read through a FileChannel into a fixed-size byte buffer, and each byte is
+turned into its digit directly in the int[] array that SingleDigitMultiplication uses.
+4. Writing goes the other way: digits are turned into bytes in the same kind of buffer, which is written
+out every time it fills up.
+5. The file size gives the largest possible number of digits, so the digit array is allocated once.
+6. multiplyFiles does not use digit arrays at all: readPacked decodes the digits straight into the limbs
+of a PackedNumber, 9 digits per int instead of 1, and the product is written back from its limbs.
+The number of digits is only known at the end of the file, so the limbs are first filled 9 digits at a
+time from the front, then shifted once so that the last limb is the full one, as PackedNumber expects.
+ */
+
+public class DigitFileIO {
+
+    /** Size of the byte buffer used for reading and writing */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Base of the digits in the text files */
+    public static final int BASE = 10;
+
+    /**
+     * Reads a number written in decimal digits. Spaces, tabs and line breaks are skipped.
+     *
+     * @param path file to read
+     * @return digits of the number, most significant digit first
+     * @throws IOException if the file cannot be read or contains something other than digits
+     */
+    public static int[] readDigits(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large for a digit array: " + path);
+            }
+            int[] digits = new int[(int) size];
+            int count = 0;
+            long position = 0;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte character = buffer.get();
+                    if (character >= '0' && character <= '9') {
+                        digits[count] = character - '0';
+                        count++;
+                    } else if (character != ' ' && character != '\t' && character != '\n' && character != '\r') {
+                        throw new IOException("Not a digit at byte " + position + " of " + path);
+                    }
+                    position++;
+                }
+                buffer.clear();
+            }
+            // Only copy when there were line breaks or spaces to skip
+            return (count == digits.length) ? digits : Arrays.copyOf(digits, count);
+        }
+    } // method readDigits
+
+    /**
+     * Reads a number written in decimal digits straight into packed limbs, without an array of
+     * digits in between. Spaces, tabs and line breaks are skipped.
+     *
+     * @param path file to read
+     * @return the number, packed with base BASE
+     * @throws IOException if the file cannot be read or contains something other than digits
+     */
+    public static PackedNumber readPacked(Path path) throws IOException {
+        int digitsPerLimb = PackedNumber.digitsPerLimb(BASE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large for a digit array: " + path);
+            }
+            // Groups of digitsPerLimb digits, most significant first; the last one may be partial
+            int[] groups = new int[Math.max(1, ((int) size + digitsPerLimb - 1) / digitsPerLimb)];
+            int count = 0;
+            long position = 0;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte character = buffer.get();
+                    if (character >= '0' && character <= '9') {
+                        int group = count / digitsPerLimb;
+                        groups[group] = groups[group] * BASE + (character - '0');
+                        count++;
+                    } else if (character != ' ' && character != '\t' && character != '\n' && character != '\r') {
+                        throw new IOException("Not a digit at byte " + position + " of " + path);
+                    }
+                    position++;
+                }
+                buffer.clear();
+            }
+            return PackedNumber.fromLimbs(alignLimbs(groups, count, digitsPerLimb), BASE);
+        }
+    } // method readPacked
+
+    /**
+     * Turns groups filled from the front into limbs, least significant first. When the last group
+     * holds only r digits, every group gives its last digitsPerLimb - r digits to the group after it:
+     * the first limb then has r digits and all the others are full.
+     */
+    private static int[] alignLimbs(int[] groups, int count, int digitsPerLimb) {
+        int limbCount = Math.max(1, (count + digitsPerLimb - 1) / digitsPerLimb);
+        int[] limbs = new int[limbCount];
+        int partial = count % digitsPerLimb;
+        int shift = 1;
+        for (int d = 0; d < digitsPerLimb - partial; d++) {
+            shift *= BASE;
+        }
+        int keep = 1;
+        for (int d = 0; d < partial; d++) {
+            keep *= BASE;
+        }
+        for (int i = 0; i < limbCount; i++) {
+            int limb = groups[i];
+            if (partial != 0) {
+                // The high digits of this group (the last one only has those), after the low digits of the one before
+                limb = (i == limbCount - 1) ? groups[i] : groups[i] / shift;
+                if (i > 0) {
+                    limb += (groups[i - 1] % shift) * keep;
+                }
+            }
+            limbs[limbCount - 1 - i] = limb;
+        }
+        return limbs;
+    } // method alignLimbs
+
+    /**
+     * Writes a packed number in base BASE as decimal digits followed by a line break, straight
+     * from its limbs: the most significant limb without leading zeros, then every other one in full.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static void writePacked(Path path, PackedNumber number) throws IOException {
+        if (number.getBase() != BASE) {
+            throw new IllegalArgumentException("Only base " + BASE + " can be written: " + number.getBase());
+        }
+        int[] limbs = number.getLimbs();
+        int digitsPerLimb = number.getDigitsPerLimb();
+        int top = limbs.length - 1;
+        while (top > 0 && limbs[top] == 0) {
+            top--;
+        }
+        byte[] text = new byte[digitsPerLimb];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            for (int k = top; k >= 0; k--) {
+                int limb = limbs[k];
+                for (int d = digitsPerLimb - 1; d >= 0; d--) {
+                    text[d] = (byte) ('0' + limb % BASE);
+                    limb /= BASE;
+                }
+                int from = 0;
+                if (k == top) {
+                    // No leading zeros, but keep one digit for zero itself
+                    while (from < digitsPerLimb - 1 && text[from] == '0') {
+                        from++;
+                    }
+                }
+                if (buffer.remaining() < digitsPerLimb) {
+                    flush(channel, buffer);
+                }
+                buffer.put(text, from, digitsPerLimb - from);
+            }
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            buffer.put((byte) '\n');
+            flush(channel, buffer);
+        }
+    } // method writePacked
+
+    /** Writes a whole number as decimal digits followed by a line break */
+    public static void writeDigits(Path path, int[] digits) throws IOException {
+        writeDigits(path, digits, 0, digits.length);
+    } // method writeDigits
+
+    /**
+     * Writes digits[from..to) as decimal digits followed by a line break. This works directly
+     * with the start and end returned by multiplyInto and BatchMultiplication.
+     *
+     * @param path file to write; it is created or replaced
+     * @param digits array holding the number, most significant digit first
+     * @param from position of the first digit to write
+     * @param to position just after the last digit to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeDigits(Path path, int[] digits, int from, int to) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            for (int i = from; i < to; i++) {
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.put((byte) ('0' + digits[i]));
+            }
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            buffer.put((byte) '\n');
+            flush(channel, buffer);
+        }
+    } // method writeDigits
+
+    /**
+     * Multiplies the numbers in two files and writes the product to a third one. The numbers are
+     * read straight into packed limbs and multiplied there. Only numbers large enough for the
+     * number-theoretic transform are unpacked to digits, since it needs smaller limbs of its own.
+     *
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void multiplyFiles(Path x, Path y, Path product) throws IOException {
+        PackedNumber a = readPacked(x);
+        PackedNumber b = readPacked(y);
+        int aDigits = a.digitCount();
+        int bDigits = b.digitCount();
+        if (Math.min(aDigits, bDigits) >= SingleDigitMultiplication.NTT_THRESHOLD
+                && NumberTheoreticTransform.canMultiply(aDigits, bDigits, BASE)) {
+            writeDigits(product, SingleDigitMultiplication.multiply(a.toDigits(), b.toDigits(), BASE));
+        } else {
+            writePacked(product, a.multiply(b));
+        }
+    } // method multiplyFiles
+
+    /** Writes everything in the buffer to the channel and empties the buffer */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    } // method flush
+
+} // class DigitFileIO
@@ -0,0 +1,194 @@
+/*
+Structure of the class and the reasons behind it.
+1. Multiplying two numbers is the same as a convolution of their digits followed by carrying:
+position k of the product collects every a[i] * b[j] with i + j = k.
+2. A number-theoretic transform (NTT) is a Fourier transform done with whole numbers modulo a prime,
+so it computes that convolution in n log n steps with no floating-point rounding at all.
+3. The convolution is done modulo two primes, and the Chinese remainder theorem rebuilds the exact value
+of each position. This works as long as every position is smaller than the product of the primes.
+4. To keep that true, the digits are packed into limbs no larger than MAX_LIMB_BASE (5 decimal digits),
+so one position is at most about 4 * 10^16 while the product of the primes is about 4.7 * 10^17.
+5. The transform length must be a power of two that divides p - 1 for both primes, which caps the size
+of the product at MAX_LENGTH limbs (about 40 million decimal digits).
+ */
+
+public class NumberTheoreticTransform {
+
+    /** First prime, 119 * 2^23 + 1, with primitive root 3 */
+    private static final long PRIME_1 = 998244353L;
+    /** Second prime, 7 * 2^26 + 1, with primitive root 3 */
+    private static final long PRIME_2 = 469762049L;
+    /** Primitive root shared by both primes */
+    private static final long ROOT = 3;
+
+    /** Largest transform length supported by both primes */
+    public static final int MAX_LENGTH = 1 << 23;
+    /** Largest limb base that keeps every position of the convolution below PRIME_1 * PRIME_2 */
+    public static final int MAX_LIMB_BASE = 100000;
+
+    /**
+     * Checks whether two numbers of the given lengths in the given base can be multiplied exactly.
+     *
+     * @return true if the digits fit in small enough limbs and the product fits in MAX_LENGTH limbs
+     */
+    public static boolean canMultiply(int xLength, int yLength, int base) {
+        if (base < 2 || base > MAX_LIMB_BASE) {
+            return false;
+        }
+        // The limbs hold at least one digit each, so counting digits gives an upper bound
+        int digitsPerLimb = PackedNumber.digitsPerLimb(base, MAX_LIMB_BASE);
+        long limbs = ((long) xLength + digitsPerLimb - 1) / digitsPerLimb
+                + ((long) yLength + digitsPerLimb - 1) / digitsPerLimb;
+        return limbs <= MAX_LENGTH;
+    } // method canMultiply
+
+    /**
+     * Multiplies two numbers with the number-theoretic transform.
+     *
+     * @param x digits of the first number, most significant digit first
+     * @param y digits of the second number, most significant digit first
+     * @param base base of the digits
+     * @return digits of the product in an array of length x.length + y.length (may have leading zeros)
+     */
+    public static int[] multiply(int[] x, int[] y, int base) {
+        if (!canMultiply(x.length, y.length, base)) {
+            throw new IllegalArgumentException("Numbers of " + x.length + " and " + y.length
+                    + " digits in base " + base + " are too large for the transform");
+        }
+        PackedNumber a = PackedNumber.fromDigits(x, base, MAX_LIMB_BASE);
+        PackedNumber b = PackedNumber.fromDigits(y, base, MAX_LIMB_BASE);
+        int[] product = multiplyLimbs(a.getLimbs(), b.getLimbs(), a.getLimbBase());
+        return a.withLimbs(product).toDigits(x.length + y.length);
+    } // method multiply
+
+    /**
+     * Squares a number with the number-theoretic transform. Only one forward transform per prime
+     * is needed instead of two.
+     *
+     * @param x digits of the number, most significant digit first
+     * @param base base of the digits
+     * @return digits of the square in an array of length 2 * x.length (may have leading zeros)
+     */
+    public static int[] square(int[] x, int base) {
+        if (!canMultiply(x.length, x.length, base)) {
+            throw new IllegalArgumentException("A number of " + x.length + " digits in base " + base
+                    + " is too large for the transform");
+        }
+        PackedNumber a = PackedNumber.fromDigits(x, base, MAX_LIMB_BASE);
+        int[] product = multiplyLimbs(a.getLimbs(), a.getLimbs(), a.getLimbBase());
+        return a.withLimbs(product).toDigits(2 * x.length);
+    } // method square
+
+    /**
+     * Multiplies two numbers stored as limbs, least significant first.
+     *
+     * @return the product as limbs smaller than limbBase, in an array of length a.length + b.length
+     */
+    static int[] multiplyLimbs(int[] a, int[] b, int limbBase) {
+        int resultLength = a.length + b.length;
+        int n = Integer.highestOneBit(Math.max(1, resultLength - 1)) << 1;
+        int[] first = convolve(a, b, n, PRIME_1);
+        int[] second = convolve(a, b, n, PRIME_2);
+        // Inverse of PRIME_1 modulo PRIME_2 for the Chinese remainder theorem
+        long inverse = power(PRIME_1 % PRIME_2, PRIME_2 - 2, PRIME_2);
+        int[] result = new int[resultLength];
+        long carry = 0;
+        for (int k = 0; k < resultLength; k++) {
+            // The value that leaves remainder first[k] mod PRIME_1 and second[k] mod PRIME_2
+            long difference = (second[k] - first[k] % PRIME_2 + PRIME_2) % PRIME_2;
+            long value = first[k] + PRIME_1 * (difference * inverse % PRIME_2);
+            value += carry;
+            result[k] = (int) (value % limbBase);
+            carry = value / limbBase;
+        }
+        return result;
+    } // method multiplyLimbs
+
+    /**
+     * Convolution of a and b modulo prime, using transforms of length n. When a and b are the
+     * same array (a square), the transform of a is reused for b.
+     */
+    private static int[] convolve(int[] a, int[] b, int n, long prime) {
+        int[] fa = new int[n];
+        System.arraycopy(a, 0, fa, 0, a.length);
+        transform(fa, false, prime);
+        int[] fb = fa;
+        if (b != a) {
+            fb = new int[n];
+            System.arraycopy(b, 0, fb, 0, b.length);
+            transform(fb, false, prime);
+        }
+        for (int i = 0; i < n; i++) {
+            fa[i] = (int) ((long) fa[i] * fb[i] % prime);
+        }
+        transform(fa, true, prime);
+        return fa;
+    } // method convolve
+
+    /**
+     * In-place iterative transform of values modulo prime. The length of values must be a power of two.
+     *
+     * @param invert true for the inverse transform, which also divides by the length
+     */
+    private static void transform(int[] values, boolean invert, long prime) {
+        int n = values.length;
+        // Put the values in bit-reversed order so the butterflies can work in place
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            while ((j & bit) != 0) {
+                j ^= bit;
+                bit >>= 1;
+            }
+            j ^= bit;
+            if (i < j) {
+                int temp = values[i];
+                values[i] = values[j];
+                values[j] = temp;
+            }
+        }
+        int[] roots = new int[Math.max(1, n / 2)];
+        for (int length = 2; length <= n; length <<= 1) {
+            int half = length / 2;
+            // Powers of a primitive root of unity of order length, computed once per level
+            long root = power(ROOT, (prime - 1) / length, prime);
+            if (invert) {
+                root = power(root, prime - 2, prime);
+            }
+            roots[0] = 1;
+            for (int j = 1; j < half; j++) {
+                roots[j] = (int) (roots[j - 1] * root % prime);
+            }
+            for (int i = 0; i < n; i += length) {
+                for (int j = 0; j < half; j++) {
+                    long u = values[i + j];
+                    long v = values[i + j + half] * (long) roots[j] % prime;
+                    long sum = u + v;
+                    long difference = u - v;
+                    values[i + j] = (int) (sum >= prime ? sum - prime : sum);
+                    values[i + j + half] = (int) (difference < 0 ? difference + prime : difference);
+                }
+            }
+        }
+        if (invert) {
+            long inverseLength = power(n, prime - 2, prime);
+            for (int i = 0; i < n; i++) {
+                values[i] = (int) (values[i] * inverseLength % prime);
+            }
+        }
+    } // method transform
+
+    /** Computes base^exponent modulo prime by repeated squaring */
+    private static long power(long base, long exponent, long prime) {
+        long result = 1;
+        base %= prime;
+        while (exponent > 0) {
+            if ((exponent & 1) == 1) {
+                result = result * base % prime;
+            }
+            base = base * base % prime;
+            exponent >>= 1;
+        }
+        return result;
+    } // method power
+
+} // class NumberTheoreticTransform
@@ -0,0 +1,302 @@
+import java.util.Arrays;
+
+/*
+Structure of the class and the reasons behind it.
+1. SingleDigitMultiplication stores one digit per int, which leaves most of every int unused
+and makes the multiplication loop do one division for every pair of digits.
+2. A PackedNumber groups several digits into one "limb". In base 10 a limb holds 9 digits,
+so a limb is a number from 0 to 999,999,999.
+3. Multiplying two limbs gives a number below 10^18, which still fits in a long,
+so the loops do the same work as before but on about 9 times fewer positions in each number.
+4. The limbs are stored with the least significant limb first, the same order used by the Karatsuba helpers.
+5. The class converts to and from the int[] digit arrays (most significant digit first) used everywhere else.
+ */
+
+public class PackedNumber {
+
+    /** Largest limb base; keeps the product of two limbs plus carries inside a long */
+    private static final int MAX_LIMB_BASE = 1000000000;
+
+    /** Below this many limbs in the shorter number, the limb-by-limb loop is faster than Karatsuba */
+    public static final int KARATSUBA_LIMB_THRESHOLD = 32;
+
+    /** Base of the digits this number was built from */
+    private final int base;
+    /** How many digits are packed in each limb */
+    private final int digitsPerLimb;
+    /** base to the power of digitsPerLimb; every limb is smaller than this */
+    private final int limbBase;
+    /** The limbs, least significant first */
+    private final int[] limbs;
+
+    /** Full constructor. The limbs must already be smaller than the limb base. */
+    private PackedNumber(int base, int digitsPerLimb, int limbBase, int[] limbs) {
+        this.base = base;
+        this.digitsPerLimb = digitsPerLimb;
+        this.limbBase = limbBase;
+        this.limbs = limbs;
+    } // full constructor
+
+    /**
+     * Packs an array of digits into limbs. The digits are read from the end of the array so that
+     * the least significant limb gets the last digits, and the first limb may be only partly filled.
+     *
+     * @param digits digits of the number, most significant digit first, each between 0 and base - 1
+     * @param base base of the digits, at least 2
+     * @return the packed number
+     */
+    public static PackedNumber fromDigits(int[] digits, int base) {
+        return fromDigits(digits, base, MAX_LIMB_BASE);
+    } // method fromDigits
+
+    /**
+     * Packs an array of digits into limbs no larger than the given limb base. Used when an
+     * algorithm needs smaller limbs than usual (see NumberTheoreticTransform).
+     */
+    static PackedNumber fromDigits(int[] digits, int base, int maxLimbBase) {
+        if (base < 2) {
+            throw new IllegalArgumentException("Base must be at least 2: " + base);
+        }
+        int digitsPerLimb = digitsPerLimb(base, maxLimbBase);
+        long limbBase = 1;
+        for (int d = 0; d < digitsPerLimb; d++) {
+            limbBase *= base;
+        }
+        int[] limbs = new int[Math.max(1, (digits.length + digitsPerLimb - 1) / digitsPerLimb)];
+        for (int k = 0; k < limbs.length; k++) {
+            // Digits of limb k go from start (inclusive) to end (exclusive)
+            int end = digits.length - k * digitsPerLimb;
+            int start = Math.max(0, end - digitsPerLimb);
+            long limb = 0;
+            for (int i = start; i < end; i++) {
+                limb = limb * base + digits[i];
+            }
+            limbs[k] = (int) limb;
+        }
+        return new PackedNumber(base, digitsPerLimb, (int) limbBase, limbs);
+    } // method fromDigits
+
+    /**
+     * Multiplies this number by another one packed with the same base.
+     *
+     * @param other the number to multiply by
+     * @return the product, packed with the same base
+     */
+    public PackedNumber multiply(PackedNumber other) {
+        return multiply(other, KARATSUBA_LIMB_THRESHOLD);
+    } // method multiply
+
+    /**
+     * Multiplies this number by another one packed with the same base, with the given cutoff for
+     * Karatsuba counted in limbs instead of KARATSUBA_LIMB_THRESHOLD.
+     *
+     * @param other the number to multiply by
+     * @param limbThreshold minimum number of limbs of the shorter number for Karatsuba to be used
+     * @return the product, packed with the same base
+     */
+    public PackedNumber multiply(PackedNumber other, int limbThreshold) {
+        if (other.base != this.base) {
+            throw new IllegalArgumentException("Cannot multiply numbers in base " + this.base + " and " + other.base);
+        }
+        int[] product = SingleDigitMultiplication.karatsuba(this.limbs, 0, this.limbs.length,
+                other.limbs, 0, other.limbs.length, this.limbBase, limbThreshold);
+        return withLimbs(product);
+    } // method multiply
+
+    /**
+     * Squares this number. Faster than multiply(this), since each product of two different limbs
+     * is only computed once.
+     *
+     * @return the square, packed with the same base
+     */
+    public PackedNumber square() {
+        return withLimbs(SingleDigitMultiplication.karatsubaSquare(this.limbs, 0, this.limbs.length,
+                this.limbBase, KARATSUBA_LIMB_THRESHOLD));
+    } // method square
+
+    /**
+     * Raises this number to a power by square-and-multiply: the bits of the exponent are read from
+     * the highest one down, the result is squared for every bit and multiplied by this number when
+     * the bit is 1.
+     *
+     * No step can have more than exponent times as many limbs as this number, so two
+     * buffers of that size are allocated once and every step writes from one into the other.
+     * Small steps run the limb-by-limb loops directly on those buffers without allocating.
+     *
+     * @param exponent the power, at least 0
+     * @return this number to the power exponent, packed with the same base
+     */
+    public PackedNumber pow(int exponent) {
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Exponent must not be negative: " + exponent);
+        }
+        int length = significantLimbs(this.limbs, this.limbs.length);
+        // Two extra limbs cover squaring the starting value 1, which has more limbs than this number to the power 0
+        long capacity = (long) length * exponent + 2;
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Power is too large: " + exponent);
+        }
+        int[] current = new int[(int) capacity];
+        int[] scratch = new int[(int) capacity];
+        current[0] = 1;
+        int currentLength = 1;
+        for (int bit = 31 - Integer.numberOfLeadingZeros(exponent); bit >= 0; bit--) {
+            currentLength = squareInto(current, currentLength, scratch);
+            int[] swap = current;
+            current = scratch;
+            scratch = swap;
+            if (((exponent >>> bit) & 1) == 1) {
+                currentLength = multiplyInto(current, currentLength, this.limbs, length, scratch);
+                swap = current;
+                current = scratch;
+                scratch = swap;
+            }
+        }
+        int[] result = new int[currentLength];
+        System.arraycopy(current, 0, result, 0, currentLength);
+        return withLimbs(result);
+    } // method pow
+
+    /** Squares source[0..length) into target and returns the number of significant limbs */
+    private int squareInto(int[] source, int length, int[] target) {
+        int productLength = 2 * length;
+        if (length < KARATSUBA_LIMB_THRESHOLD) {
+            Arrays.fill(target, 0, productLength, 0);
+            SingleDigitMultiplication.schoolbookSquareInto(source, 0, length, this.limbBase, target);
+        } else {
+            int[] product = SingleDigitMultiplication.karatsubaSquare(source, 0, length, this.limbBase,
+                    KARATSUBA_LIMB_THRESHOLD);
+            System.arraycopy(product, 0, target, 0, productLength);
+        }
+        return significantLimbs(target, productLength);
+    } // method squareInto
+
+    /** Multiplies source[0..length) by factor[0..factorLength) into target and returns the number of significant limbs */
+    private int multiplyInto(int[] source, int length, int[] factor, int factorLength, int[] target) {
+        int productLength = length + factorLength;
+        if (Math.min(length, factorLength) < KARATSUBA_LIMB_THRESHOLD) {
+            Arrays.fill(target, 0, productLength, 0);
+            SingleDigitMultiplication.schoolbookInto(source, 0, length, factor, 0, factorLength,
+                    this.limbBase, target);
+        } else {
+            int[] product = SingleDigitMultiplication.karatsuba(source, 0, length, factor, 0, factorLength,
+                    this.limbBase, KARATSUBA_LIMB_THRESHOLD);
+            System.arraycopy(product, 0, target, 0, productLength);
+        }
+        return significantLimbs(target, productLength);
+    } // method multiplyInto
+
+    /** Returns how many of the first length limbs are left once the zero limbs at the top are dropped, at least 1 */
+    private static int significantLimbs(int[] limbs, int length) {
+        while (length > 1 && limbs[length - 1] == 0) {
+            length--;
+        }
+        return length;
+    } // method significantLimbs
+
+    /**
+     * Unpacks the number into an array of digits of the given length, most significant digit first.
+     * Unused positions at the front are filled with zeros, the same way SingleDigitMultiplication
+     * sizes its product array.
+     *
+     * @param length length of the digit array; must be large enough to hold every non-zero digit
+     * @return digits of the number
+     */
+    public int[] toDigits(int length) {
+        int[] digits = new int[length];
+        int position = length - 1;
+        for (int k = 0; k < this.limbs.length; k++) {
+            int limb = this.limbs[k];
+            for (int d = 0; d < this.digitsPerLimb && (position >= 0 || limb != 0); d++) {
+                if (position < 0) {
+                    throw new IllegalArgumentException("Number does not fit in " + length + " digits");
+                }
+                digits[position] = limb % this.base;
+                limb /= this.base;
+                position--;
+            }
+        }
+        return digits;
+    } // method toDigits
+
+    /**
+     * Unpacks the number into an array of digits without leading zeros.
+     *
+     * @return digits of the number, most significant digit first; zero is returned as [0]
+     */
+    public int[] toDigits() {
+        return toDigits(digitCount());
+    } // method toDigits
+
+    /** Returns the number of digits without leading zeros, at least 1 */
+    public int digitCount() {
+        int top = significantLimbs(this.limbs, this.limbs.length) - 1;
+        int count = top * this.digitsPerLimb;
+        // Count the digits of the most significant limb, at least one
+        int limb = this.limbs[top];
+        do {
+            count++;
+            limb /= this.base;
+        } while (limb != 0);
+        return count;
+    } // method digitCount
+
+    /**
+     * Wraps limbs that were already packed with the usual limb size for the given base, for
+     * readers that decode digits straight into limbs (see DigitFileIO.readPacked).
+     * The limbs must be least significant first and smaller than the limb base.
+     */
+    static PackedNumber fromLimbs(int[] limbs, int base) {
+        int digitsPerLimb = digitsPerLimb(base);
+        long limbBase = 1;
+        for (int d = 0; d < digitsPerLimb; d++) {
+            limbBase *= base;
+        }
+        return new PackedNumber(base, digitsPerLimb, (int) limbBase, limbs);
+    } // method fromLimbs
+
+    /**
+     * Creates a number with the same base and limb size as this one from the given limbs.
+     * The limbs must be least significant first and smaller than the limb base.
+     */
+    PackedNumber withLimbs(int[] limbs) {
+        return new PackedNumber(this.base, this.digitsPerLimb, this.limbBase, limbs);
+    } // method withLimbs
+
+    /** Returns how many digits are packed into each limb */
+    int getDigitsPerLimb() {
+        return this.digitsPerLimb;
+    } // method getDigitsPerLimb
+
+    /** Returns the limbs, least significant first. The array is not copied. */
+    int[] getLimbs() {
+        return this.limbs;
+    } // method getLimbs
+
+    /** Returns how many digits of the given base fit in a limb of the usual size */
+    static int digitsPerLimb(int base) {
+        return digitsPerLimb(base, MAX_LIMB_BASE);
+    } // method digitsPerLimb
+
+    /** Returns how many digits of the given base fit in a limb without passing the maximum limb base */
+    static int digitsPerLimb(int base, int maxLimbBase) {
+        int digitsPerLimb = 1;
+        long limbBase = base;
+        while (limbBase * base <= maxLimbBase) {
+            limbBase *= base;
+            digitsPerLimb++;
+        }
+        return digitsPerLimb;
+    } // method digitsPerLimb
+
+    /** Returns the limb base; every limb is smaller than this */
+    int getLimbBase() {
+        return this.limbBase;
+    } // method getLimbBase
+
+    /** Returns the base of the digits this number was built from */
+    public int getBase() {
+        return this.base;
+    } // method getBase
+
+} // class PackedNumber
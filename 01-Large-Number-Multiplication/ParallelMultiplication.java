@@ -0,0 +1,157 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+Structure of the class and the reasons behind it.
+1. In the digit-by-digit multiplication every digit of the first number gives a partial product
+with the whole second number, and those partial products do not depend on each other.
+2. Here the longer number is cut into chunks of limbs (see PackedNumber) and each chunk is multiplied
+by the whole other number in its own fork/join task. The tasks run in the common fork/join pool, or in
+a pool given by the caller, so no threads are started for each product; a product with a single chunk
+runs directly on the calling thread.
+3. Every task writes only its own partial product, so the tasks never share memory while they run.
+4. Once all the tasks are done, the partial products are added up at their positions in one final pass
+that also carries, giving the same array as SingleDigitMultiplication.multiply.
+ */
+
+public class ParallelMultiplication {
+
+    /** Default smallest chunk; below this the cost of a task is larger than the work it saves */
+    public static final int DEFAULT_MIN_CHUNK_DIGITS = 4096;
+
+    /** Chunks per thread, so that threads that finish early can take over remaining work */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** Multiplies in the common fork/join pool with the default chunk size */
+    public static int[] multiply(int[] x, int[] y, int base) {
+        return multiply(x, y, base, ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK_DIGITS);
+    } // method multiply
+
+    /**
+     * Multiplies two numbers using a pool of its own with the given number of threads. Starting
+     * the threads costs more than a mid-size product gains from them, so this is meant for large
+     * products or for trying out thread counts; otherwise use a shared pool.
+     *
+     * @param parallelism number of threads to use, at least 1
+     * @param minChunkDigits smallest number of digits of the longer number given to one task
+     * @return digits of the product with the leading zero (if any) removed
+     */
+    public static int[] multiply(int[] x, int[] y, int base, int parallelism, int minChunkDigits) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return multiply(x, y, base, pool, minChunkDigits);
+        } finally {
+            pool.shutdown();
+        }
+    } // method multiply
+
+    /**
+     * Multiplies two numbers using the threads of the given pool, which is left running so that
+     * many products can share it.
+     *
+     * @param x digits of the first number, most significant digit first
+     * @param y digits of the second number, most significant digit first
+     * @param base base of the digits
+     * @param pool the pool that runs the tasks; its parallelism decides how many chunks there are
+     * @param minChunkDigits smallest number of digits of the longer number given to one task
+     * @return digits of the product with the leading zero (if any) removed
+     */
+    public static int[] multiply(int[] x, int[] y, int base, ForkJoinPool pool, int minChunkDigits) {
+        int parallelism = pool.getParallelism();
+        // Split the longer number so that there are more chunks to share out
+        PackedNumber longer = PackedNumber.fromDigits(x.length >= y.length ? x : y, base);
+        PackedNumber shorter = PackedNumber.fromDigits(x.length >= y.length ? y : x, base);
+        int[] longLimbs = longer.getLimbs();
+        int[] shortLimbs = shorter.getLimbs();
+        int limbBase = longer.getLimbBase();
+        int digitsPerLimb = PackedNumber.digitsPerLimb(base, limbBase);
+
+        int minChunkLimbs = Math.max(1, (minChunkDigits + digitsPerLimb - 1) / digitsPerLimb);
+        int evenChunkLimbs = (longLimbs.length + parallelism * CHUNKS_PER_THREAD - 1) / (parallelism * CHUNKS_PER_THREAD);
+        int chunkLimbs = Math.max(minChunkLimbs, evenChunkLimbs);
+        int chunks = (longLimbs.length + chunkLimbs - 1) / chunkLimbs;
+
+        int[][] partials = new int[chunks][];
+        PartialProducts task = new PartialProducts(longLimbs, shortLimbs, limbBase, chunkLimbs, partials, 0, chunks);
+        if (chunks == 1) {
+            // Nothing to share out: no need to hand the work to another thread
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+
+        // Final pass: add the partial products at their positions and carry once
+        long[] sums = new long[longLimbs.length + shortLimbs.length];
+        for (int c = 0; c < chunks; c++) {
+            int offset = c * chunkLimbs;
+            int[] partial = partials[c];
+            for (int i = 0; i < partial.length && offset + i < sums.length; i++) {
+                sums[offset + i] += partial[i];
+            }
+        }
+        int[] limbs = new int[sums.length];
+        long carry = 0;
+        for (int i = 0; i < sums.length; i++) {
+            long value = sums[i] + carry;
+            limbs[i] = (int) (value % limbBase);
+            carry = value / limbBase;
+        }
+
+        int[] productArray = longer.withLimbs(limbs).toDigits(x.length + y.length);
+        if (productArray[0] == 0) {
+            return SingleDigitMultiplication.adjustedArray(productArray);
+        }
+        return productArray;
+    } // method multiply
+
+    /**
+     * Task that computes the partial products of chunks [from, to) of the longer number.
+     * It splits itself in two until it has a single chunk left to multiply.
+     */
+    private static class PartialProducts extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] longLimbs;
+        private final int[] shortLimbs;
+        private final int limbBase;
+        private final int chunkLimbs;
+        /** Where each chunk stores its partial product; every task writes only its own entries */
+        private final int[][] partials;
+        private final int from;
+        private final int to;
+
+        PartialProducts(int[] longLimbs, int[] shortLimbs, int limbBase, int chunkLimbs,
+                int[][] partials, int from, int to) {
+            this.longLimbs = longLimbs;
+            this.shortLimbs = shortLimbs;
+            this.limbBase = limbBase;
+            this.chunkLimbs = chunkLimbs;
+            this.partials = partials;
+            this.from = from;
+            this.to = to;
+        } // full constructor
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from == 1) {
+                int start = this.from * this.chunkLimbs;
+                int length = Math.min(this.chunkLimbs, this.longLimbs.length - start);
+                this.partials[this.from] = SingleDigitMultiplication.karatsuba(this.longLimbs, start, length,
+                        this.shortLimbs, 0, this.shortLimbs.length, this.limbBase,
+                        PackedNumber.KARATSUBA_LIMB_THRESHOLD);
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new PartialProducts(this.longLimbs, this.shortLimbs, this.limbBase, this.chunkLimbs,
+                                this.partials, this.from, middle),
+                        new PartialProducts(this.longLimbs, this.shortLimbs, this.limbBase, this.chunkLimbs,
+                                this.partials, middle, this.to));
+            }
+        } // method compute
+
+    } // class PartialProducts
+
+} // class ParallelMultiplication
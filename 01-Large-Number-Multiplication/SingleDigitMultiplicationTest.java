@@ -0,0 +1,38 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SingleDigitMultiplicationTest {
+
+   @Test
+   public void testMultiply() {
+      int[] product = SingleDigitMultiplication.multiply(new int[] { 1, 2 }, new int[] { 1, 2 }, 10);
+      assertEquals("[1, 4, 4]", Arrays.toString(product));
+   }
+
+   @Test
+   public void testMultiplyInto() {
+      int[] out = { 7, 7, 7, 7, 7, 7 };
+      int start = SingleDigitMultiplication.multiplyInto(new int[] { 1, 2 }, 0, 2, new int[] { 1, 2 }, 0, 2,
+            10, out, 1);
+      assertEquals(2, start);
+      assertEquals("[7, 0, 1, 4, 4, 7]", Arrays.toString(out));
+   }
+
+   @Test
+   public void testMultiplyIntoEmpty() {
+      int[] out = { 7, 7 };
+      // Both numbers empty: the product takes no places, so nothing in out changes
+      assertEquals(1, SingleDigitMultiplication.multiplyInto(new int[0], 0, 0, new int[0], 0, 0, 10, out, 1));
+      assertEquals(2, SingleDigitMultiplication.multiplyInto(new int[0], 0, 0, new int[0], 0, 0, 10, out, 2));
+      assertEquals("[7, 7]", Arrays.toString(out));
+      // One number empty: its places are zeros, with no significant digits
+      int[] zeros = { 7, 7, 7 };
+      assertEquals(3, SingleDigitMultiplication.multiplyInto(new int[] { 5, 5 }, 0, 2, new int[0], 0, 0, 10,
+            zeros, 1));
+      assertEquals("[7, 0, 0]", Arrays.toString(zeros));
+   }
+
+}
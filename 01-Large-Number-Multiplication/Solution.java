@@ -8,9 +8,25 @@ Structure of the code and adjustments made during the planning and running.
 3. Store the numbers in an array directly rather than converting the integer to an array later.
 4. Using the maximum size of the product length will create leading zeros where the size will be smaller than the maximum.
 5. Create a conditional situation so that the right array printed without any leading zeros.
+6. Large operands are packed into limbs of several digits (see PackedNumber) and multiplied with the
+Karatsuba method. Below a tunable threshold the digit-by-digit loop is used, and both paths produce
+exactly the same array.
+7. Numbers with several thousand digits or more are multiplied with the number-theoretic transform
+(see NumberTheoreticTransform), which uses only exact integer arithmetic.
+8. Squares and powers have their own methods, since squaring can skip nearly half of the digit products.
  */
 
 public class SingleDigitMultiplication {
+
+    /** Below this many digits in the shorter number, the digit-by-digit loop is faster than Karatsuba */
+    public static final int KARATSUBA_THRESHOLD = 48;
+
+    /** From this many digits in the shorter number, the number-theoretic transform is faster than Karatsuba */
+    public static final int NTT_THRESHOLD = 4000;
+
+    /** Karatsuba needs at least this many digits to make progress when it splits a number */
+    private static final int MIN_KARATSUBA_THRESHOLD = 4;
+
     public static void main(String[] args) {
         // Initializing and declaring the first array/set of numbers.
         int[] number1 = {1,2,3,4};
@@ -18,18 +34,18 @@ public class SingleDigitMultiplication {
         int[] number2 = {5,6,7,8};
         // Initializing and declaring the base number which is 10.
         int base = 10;
-        /* Calling the method that will print the array of the product.
+        /* Calling the method that will return the array of the product.
         Array printed should be [7,0,0,6,6,5,2].
          */
-        multiply(number1,number2,base);
+        System.out.println(Arrays.toString(multiply(number1,number2,base)));
         // Initializing and declaring the first array/set of numbers.
         int[] number3 = {9,9,9};
         // Initializing and declaring the second array/set of number.
         int[] number4 = {8,8,9};
-        /* Calling the method that will print the array of the product.
+        /* Calling the method that will return the array of the product.
         Array printed should be [8,8,8,1,1,1].
          */
-        multiply(number3,number4,base);
+        System.out.println(Arrays.toString(multiply(number3,number4,base)));
     }
 
     /*
@@ -59,11 +75,153 @@ public class SingleDigitMultiplication {
     12. productArray[i] allows the remaining carry digits to be added back to obtain the final individual digit in each position of the array.
      */
 
-    public static void multiply(int[] x, int[] y, int base) {
-        /* Declaring the variable that will be store the carry digit when a product of
-         above 9 is obtained when multiplying the single digit in each array.
+    public static int[] multiply(int[] x, int[] y, int base) {
+        return trimmed(fullProduct(x, y, base, KARATSUBA_THRESHOLD, PackedNumber.KARATSUBA_LIMB_THRESHOLD));
+    }
+
+    /**
+     * Multiplies the two numbers, choosing the algorithm by the length of the shorter number.
+     * Numbers shorter than the threshold use the digit-by-digit loop; longer ones use Karatsuba.
+     * Longer numbers are packed into limbs first (see PackedNumber), and numbers of at least
+     * NTT_THRESHOLD digits use the number-theoretic transform. All paths fill the same
+     * fixed-length product array, so the returned arrays are identical.
+     *
+     * The threshold also controls Karatsuba on the packed limbs: it is turned into the number of
+     * limbs that hold threshold digits, so a part of at least threshold digits is still split
+     * in two. Only multiply(x, y, base) keeps the cutoff tuned for limbs, KARATSUBA_LIMB_THRESHOLD.
+     *
+     * @param x digits of the first number, most significant digit first
+     * @param y digits of the second number, most significant digit first
+     * @param base base of the digits
+     * @param threshold minimum length of the shorter number for Karatsuba to be used
+     * @return digits of the product with the leading zero (if any) removed
+     */
+    public static int[] multiply(int[] x, int[] y, int base, int threshold) {
+        // A limb threshold of 0 means: as many limbs as hold threshold digits
+        return trimmed(fullProduct(x, y, base, threshold, 0));
+    }
+
+    /** Drops the leading zero of a fixed-length product array, if it has one */
+    private static int[] trimmed(int[] productArray) {
+        /* If the first position is zero, this means that the array is smaller
+            than the maximum size of the product of two numbers.
+            The method adjustedArray returns the product without the leading zero.
          */
-        int carryDigit;
+        if (productArray[0] == 0) {
+            return adjustedArray(productArray);
+        }
+        // Else, if the product is indeed of maximum size, then, the current array is returned.
+        return productArray;
+    }
+
+    /**
+     * Multiplies x[xOff..xOff+xLen) by y[yOff..yOff+yLen) and writes the product into the caller's
+     * array, so that repeated calls can reuse the same buffer. Numbers shorter than KARATSUBA_THRESHOLD
+     * digits are multiplied in place with the digit-by-digit loop and nothing is allocated; longer
+     * numbers are computed with the usual algorithms and copied in.
+     *
+     * The product takes out[outOff..outOff+xLen+yLen). Instead of copying the product to drop the
+     * leading zero (as adjustedArray does), the method returns where the product really starts.
+     * The significant digits are out[start..outOff+xLen+yLen), which is the same array that
+     * multiply returns.
+     *
+     * When either number has no digits, the product takes the xLen + yLen places from outOff, all
+     * set to 0, and start is their end: there are no significant digits.
+     *
+     * @param out array that receives the product; needs room for xLen + yLen digits from outOff
+     * @return start, the position in out of the first digit of the product without the leading zero
+     */
+    public static int multiplyInto(int[] x, int xOff, int xLen, int[] y, int yOff, int yLen, int base,
+            int[] out, int outOff) {
+        if (xLen == 0 || yLen == 0) {
+            // Nothing to multiply, and out[outOff] may not even belong to the product
+            Arrays.fill(out, outOff, outOff + xLen + yLen, 0);
+            return outOff + xLen + yLen;
+        }
+        if (Math.min(xLen, yLen) < KARATSUBA_THRESHOLD) {
+            schoolbook(x, xOff, xLen, y, yOff, yLen, base, out, outOff);
+        } else {
+            int[] productArray = fullProduct(Arrays.copyOfRange(x, xOff, xOff + xLen),
+                    Arrays.copyOfRange(y, yOff, yOff + yLen), base, KARATSUBA_THRESHOLD,
+                    PackedNumber.KARATSUBA_LIMB_THRESHOLD);
+            System.arraycopy(productArray, 0, out, outOff, productArray.length);
+        }
+        // Same rule as adjustedArray: a zero in the first position is not part of the product
+        return (out[outOff] == 0) ? outOff + 1 : outOff;
+    }
+
+    /** Multiplies two whole arrays into out from position 0. See the full version above. */
+    public static int multiplyInto(int[] x, int[] y, int base, int[] out) {
+        return multiplyInto(x, 0, x.length, y, 0, y.length, base, out, 0);
+    }
+
+    /**
+     * Squares a number. This gives the same array as multiply(x, x, base), but each product of two
+     * different digits x[i] * x[j] is computed once and doubled instead of being computed twice,
+     * which saves nearly half of the digit products.
+     *
+     * @param x digits of the number, most significant digit first
+     * @param base base of the digits
+     * @return digits of the square with the leading zero (if any) removed
+     */
+    public static int[] square(int[] x, int base) {
+        int[] productArray;
+        if (x.length >= NTT_THRESHOLD && NumberTheoreticTransform.canMultiply(x.length, x.length, base)) {
+            productArray = NumberTheoreticTransform.square(x, base);
+        } else {
+            productArray = PackedNumber.fromDigits(x, base).square().toDigits(2 * x.length);
+        }
+        if (productArray[0] == 0) {
+            return adjustedArray(productArray);
+        }
+        return productArray;
+    }
+
+    /**
+     * Raises a number to a power by repeated squaring (see PackedNumber.pow).
+     *
+     * @param x digits of the number, most significant digit first
+     * @param exponent the power, at least 0
+     * @param base base of the digits
+     * @return digits of x to the power exponent, without leading zeros
+     */
+    public static int[] pow(int[] x, int exponent, int base) {
+        return PackedNumber.fromDigits(x, base).pow(exponent).toDigits();
+    }
+
+    /**
+     * Picks the algorithm as described for multiply.
+     *
+     * @param limbThreshold Karatsuba cutoff for packed numbers, in limbs; 0 to derive it from threshold
+     * @return digits of the product in an array of length x.length + y.length (may have a leading zero)
+     */
+    private static int[] fullProduct(int[] x, int[] y, int base, int threshold, int limbThreshold) {
+        int[] productArray;
+        if (Math.min(x.length, y.length) < threshold) {
+            productArray = schoolbook(x, y, base);
+        } else if (Math.min(x.length, y.length) >= NTT_THRESHOLD
+                && NumberTheoreticTransform.canMultiply(x.length, y.length, base)) {
+            // Very large numbers: convolution with the number-theoretic transform
+            productArray = NumberTheoreticTransform.multiply(x, y, base);
+        } else {
+            // Pack the digits into large limbs so each step of Karatsuba handles many digits at once
+            PackedNumber packedX = PackedNumber.fromDigits(x, base);
+            if (limbThreshold == 0) {
+                int digitsPerLimb = packedX.getDigitsPerLimb();
+                limbThreshold = (threshold + digitsPerLimb - 1) / digitsPerLimb;
+            }
+            PackedNumber product = packedX.multiply(PackedNumber.fromDigits(y, base), limbThreshold);
+            productArray = product.toDigits(x.length + y.length);
+        }
+        return productArray;
+    }
+
+    /**
+     * The digit-by-digit multiplication described above.
+     *
+     * @return digits of the product in an array of length x.length + y.length (may have a leading zero)
+     */
+    static int[] schoolbook(int[] x, int[] y, int base) {
         /* The variable denotes the maximum length of the product number.
        The length of the product can be either the sum of the size of the individual numbers or one number lesser.
          */
@@ -72,19 +230,35 @@ public class SingleDigitMultiplication {
          of the two numbers in digit by digit form.
          */
         int[] productArray = new int[maxProductLength];
+        schoolbook(x, 0, x.length, y, 0, y.length, base, productArray, 0);
+        return productArray;
+    }
+
+    /**
+     * The digit-by-digit multiplication of x[xOff..xOff+xLen) by y[yOff..yOff+yLen), written into
+     * productArray[outOff..outOff+xLen+yLen). Nothing is allocated.
+     */
+    static void schoolbook(int[] x, int xOff, int xLen, int[] y, int yOff, int yLen, int base,
+            int[] productArray, int outOff) {
+        /* Declaring the variable that will be store the carry digit when a product of
+         above 9 is obtained when multiplying the single digit in each array.
+         */
+        int carryDigit;
+        // The loop below adds to the digits already there, so the product starts from zeros
+        Arrays.fill(productArray, outOff, outOff + xLen + yLen, 0);
         // For loop to multiply one number by number in the first array of digits
-        for (int i = x.length - 1; i >= 0; i--) {
+        for (int i = xLen - 1; i >= 0; i--) {
             // Initializing the carryDigit to 0
             carryDigit = 0;
             // For loop to multiply one number by number in the second array of digits
-            for (int j = y.length - 1; j >= 0; j--) {
+            for (int j = yLen - 1; j >= 0; j--) {
                 // Creating a variable that addresses the multiplication of the digit from each array
-                int singleProduct = (x[i] * y[j]);
+                int singleProduct = (x[xOff + i] * y[yOff + j]);
                 /* Calculating the total product of the numbers while adding
                 the carry digit and single digit in the position outlined taken by the new number
                  when the single digits from both arrays are multiplied together
                  */
-                int product = singleProduct + productArray[i + j + 1] + carryDigit;
+                int product = singleProduct + productArray[outOff + i + j + 1] + carryDigit;
                 // Using division to obtain the carry digit which is the quotient as result of the equation
                 carryDigit = product / base;
                 /* Obtaining the single digit for a given position in the array
@@ -95,7 +269,7 @@ public class SingleDigitMultiplication {
                 Additionally, the array stores the digit temporarily until
                 they are added upon in the next step with the carry digit from the upcoming multiplication steps.
                  */
-                productArray[i + j + 1] = product % base;
+                productArray[outOff + i + j + 1] = product % base;
             }
             /* Adding the carry digit to the position
             From the example with arrays [1,2] and [1,2]
@@ -103,25 +277,12 @@ public class SingleDigitMultiplication {
             After multiplying all digits of number2 by number1[i], any remaining carry digit needs to be added to productArray[i].
             The second one will be 2 as well with the procedure being (12 x 10 = 120). [1] = 1, [2] = 2, [3] = 0
              */
-            productArray[i] += carryDigit;
-        }
-        /* If the first position is zero, this means that the array is smaller
-            than the maximum size of the product of two numbers.
-            Then, the first position in the array will take 0.
-            The condition checks if this is the case, a new array will be generated with
-             the product in single digits without the leading zero.
-             The method returnArray with the used productArray are used as reference.
-         */
-        if (productArray[0] == 0) {
-            adjustedArray(productArray);
-            // Else, if the product is indeed of maximum size, then, the current array is printed.
-        } else {
-            System.out.println(Arrays.toString(productArray));
+            productArray[outOff + i] += carryDigit;
         }
     }
 
     /*
-    1. This method is an alternate way to print the array of the product of the single digits.
+    1. This method is an alternate way to return the array of the product of the single digits.
     2. The array for the product has to be fixed. I decided to set the size of the product array as the sum of the length of the arrays.
 
     3. However, in multiplication, the size of the product can be either the sum of the length of the numbers or one lesser.
@@ -131,7 +292,7 @@ public class SingleDigitMultiplication {
     5. Both scenarios are possible. This method is applicable only if the first digit in the productArray is 0.(Leading zero)
      */
 
-    public static void adjustedArray(int[] productArray) {
+    public static int[] adjustedArray(int[] productArray) {
         /* Create a variable that will record the length of the new array deemed
         / to be one number lesser than the productArray
          */
@@ -149,7 +310,201 @@ public class SingleDigitMultiplication {
         for (int i = 0;i <= lengthOfNewArray - 1;i++) {
             multiplicationArray[i] = productArray[i+1];
         }
-        // Print the array of the product in single digits without the leading zero
-        System.out.println(Arrays.toString(multiplicationArray));
+        // Return the array of the product in single digits without the leading zero
+        return multiplicationArray;
+    }
+
+    /*
+    1. Karatsuba splits each number into a low half and a high half: x = x1 * base^half + x0.
+    2. Then x * y = z2 * base^(2 * half) + z1 * base^half + z0 where
+    z0 = x0 * y0, z2 = x1 * y1 and z1 = (x0 + x1) * (y0 + y1) - z0 - z2.
+    3. This needs three half-size products instead of four, so the work drops from n^2 to about n^1.585.
+    4. The helpers below store numbers with the least significant digit first so that carries move
+    towards higher indexes, and every array they return has its digits already below base.
+    5. They work for any base up to Integer.MAX_VALUE, which lets PackedNumber run them on its limbs.
+     */
+
+    /**
+     * Multiplies a[aOff..aOff+aLen) by b[bOff..bOff+bLen), both least significant digit first.
+     *
+     * @return the product, least significant digit first, in an array of length aLen + bLen
+     */
+    static int[] karatsuba(int[] a, int aOff, int aLen, int[] b, int bOff, int bLen,
+            int base, int threshold) {
+        threshold = Math.max(threshold, MIN_KARATSUBA_THRESHOLD);
+        // Make a the longer number so there is only one unbalanced case to handle
+        if (aLen < bLen) {
+            return karatsuba(b, bOff, bLen, a, aOff, aLen, base, threshold);
+        }
+        int[] result = new int[aLen + bLen];
+        if (bLen < threshold) {
+            schoolbookInto(a, aOff, aLen, b, bOff, bLen, base, result);
+            return result;
+        }
+        int half = (aLen + 1) / 2;
+        if (bLen <= half) {
+            // b is too short to split: multiply it by each half of a and add them back together
+            addInto(result, 0, karatsuba(a, aOff, half, b, bOff, bLen, base, threshold), base);
+            addInto(result, half, karatsuba(a, aOff + half, aLen - half, b, bOff, bLen, base, threshold), base);
+            return result;
+        }
+        int[] z0 = karatsuba(a, aOff, half, b, bOff, half, base, threshold);
+        int[] z2 = karatsuba(a, aOff + half, aLen - half, b, bOff + half, bLen - half, base, threshold);
+        int[] aSum = add(a, aOff, half, a, aOff + half, aLen - half, base);
+        int[] bSum = add(b, bOff, half, b, bOff + half, bLen - half, base);
+        int[] z1 = karatsuba(aSum, 0, aSum.length, bSum, 0, bSum.length, base, threshold);
+        subtractFrom(z1, z0, base);
+        subtractFrom(z1, z2, base);
+        addInto(result, 0, z0, base);
+        addInto(result, half, z1, base);
+        addInto(result, 2 * half, z2, base);
+        return result;
+    }
+
+    /**
+     * Squares a[aOff..aOff+aLen), stored least significant digit first, the same way as karatsuba:
+     * z0 = x0^2, z2 = x1^2 and z1 = (x0 + x1)^2 - z0 - z2.
+     *
+     * @return the square, least significant digit first, in an array of length 2 * aLen
+     */
+    static int[] karatsubaSquare(int[] a, int aOff, int aLen, int base, int threshold) {
+        threshold = Math.max(threshold, MIN_KARATSUBA_THRESHOLD);
+        int[] result = new int[2 * aLen];
+        if (aLen < threshold) {
+            schoolbookSquareInto(a, aOff, aLen, base, result);
+            return result;
+        }
+        int half = (aLen + 1) / 2;
+        int[] z0 = karatsubaSquare(a, aOff, half, base, threshold);
+        int[] z2 = karatsubaSquare(a, aOff + half, aLen - half, base, threshold);
+        int[] aSum = add(a, aOff, half, a, aOff + half, aLen - half, base);
+        int[] z1 = karatsubaSquare(aSum, 0, aSum.length, base, threshold);
+        subtractFrom(z1, z0, base);
+        subtractFrom(z1, z2, base);
+        addInto(result, 0, z0, base);
+        addInto(result, half, z1, base);
+        addInto(result, 2 * half, z2, base);
+        return result;
+    }
+
+    /**
+     * The digit-by-digit loop for numbers stored least significant digit first.
+     * The products are added to the digits already in result, which must be all zeros.
+     */
+    static void schoolbookInto(int[] a, int aOff, int aLen, int[] b, int bOff, int bLen,
+            int base, int[] result) {
+        for (int i = 0; i < bLen; i++) {
+            long carryDigit = 0;
+            long digit = b[bOff + i];
+            for (int j = 0; j < aLen; j++) {
+                // long so that bases larger than 46341 do not overflow
+                long product = digit * a[aOff + j] + result[i + j] + carryDigit;
+                carryDigit = product / base;
+                result[i + j] = (int) (product % base);
+            }
+            result[i + aLen] = (int) carryDigit;
+        }
+    }
+
+    /**
+     * Squares a number stored least significant digit first, writing 2 * aLen digits into result,
+     * which must be all zeros.
+     * 1. Every product a[i] * a[j] with i < j appears twice in the square, so it is computed once.
+     * 2. Those products are then doubled all at once.
+     * 3. Last, the squares a[i] * a[i] are added at position 2 * i.
+     */
+    static void schoolbookSquareInto(int[] a, int aOff, int aLen, int base, int[] result) {
+        for (int i = 0; i < aLen; i++) {
+            long carryDigit = 0;
+            long digit = a[aOff + i];
+            for (int j = i + 1; j < aLen; j++) {
+                long product = digit * a[aOff + j] + result[i + j] + carryDigit;
+                carryDigit = product / base;
+                result[i + j] = (int) (product % base);
+            }
+            result[i + aLen] = (int) carryDigit;
+        }
+        long carryDigit = 0;
+        for (int k = 0; k < 2 * aLen; k++) {
+            long doubled = 2L * result[k] + carryDigit;
+            carryDigit = doubled / base;
+            result[k] = (int) (doubled % base);
+        }
+        carryDigit = 0;
+        for (int i = 0; i < aLen; i++) {
+            long digit = a[aOff + i];
+            long low = digit * digit + result[2 * i] + carryDigit;
+            result[2 * i] = (int) (low % base);
+            long high = low / base + result[2 * i + 1];
+            result[2 * i + 1] = (int) (high % base);
+            carryDigit = high / base;
+        }
+    }
+
+    /**
+     * Adds two numbers stored least significant digit first.
+     *
+     * @return the sum, without a leading zero when there is no final carry
+     */
+    private static int[] add(int[] a, int aOff, int aLen, int[] b, int bOff, int bLen, int base) {
+        int length = Math.max(aLen, bLen);
+        int[] sum = new int[length + 1];
+        long carryDigit = 0;
+        for (int i = 0; i < length; i++) {
+            long total = carryDigit;
+            if (i < aLen) {
+                total += a[aOff + i];
+            }
+            if (i < bLen) {
+                total += b[bOff + i];
+            }
+            carryDigit = total / base;
+            sum[i] = (int) (total % base);
+        }
+        if (carryDigit == 0) {
+            // Dropping the unused digit keeps the recursive products as short as possible
+            int[] trimmed = new int[length];
+            System.arraycopy(sum, 0, trimmed, 0, length);
+            return trimmed;
+        }
+        sum[length] = (int) carryDigit;
+        return sum;
+    }
+
+    /**
+     * Adds number into result starting at position offset. Digits of number that would land
+     * past the end of result must be zero, which is always the case for partial products.
+     */
+    private static void addInto(int[] result, int offset, int[] number, int base) {
+        long carryDigit = 0;
+        int i = 0;
+        while (offset + i < result.length && (i < number.length || carryDigit != 0)) {
+            long total = result[offset + i] + carryDigit;
+            if (i < number.length) {
+                total += number[i];
+            }
+            carryDigit = total / base;
+            result[offset + i] = (int) (total % base);
+            i++;
+        }
+    }
+
+    /** Subtracts number from result in place. The result must not be smaller than number. */
+    private static void subtractFrom(int[] result, int[] number, int base) {
+        int borrow = 0;
+        int i = 0;
+        while (i < result.length && (i < number.length || borrow != 0)) {
+            long difference = (long) result[i] - borrow;
+            if (i < number.length) {
+                difference -= number[i];
+            }
+            borrow = 0;
+            if (difference < 0) {
+                difference += base;
+                borrow = 1;
+            }
+            result[i] = (int) difference;
+            i++;
+        }
     }
 }
@@ -0,0 +1,252 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A dynamic array of strings with the same methods as DynamicArray that stores
+ * its strings as UTF-8 bytes packed one after the other in a single byte array.
+ * 
+ * Every String object carries its own header and its own backing array, which
+ * for short strings take more memory than the characters themselves. Here there
+ * are only two arrays no matter how many strings are stored:
+ * 
+ * bytes   = [ c a t d o g e m u ]
+ * offsets = [ 0 , 3 , 6 , 9 ]       string i is bytes[offsets[i]] up to bytes[offsets[i + 1]]
+ * 
+ * A String is only created when get asks for one. contains and index compare the
+ * stored bytes directly with the bytes of the string being searched for, so a
+ * search creates no objects either.
+ */
+public class CompactDynamicArray {
+
+    /** Default number of strings the array has room for */
+    private static final int DEFAULT_SIZE = 4;
+
+    /** Bytes reserved per string when the arena is first created */
+    private static final int BYTES_PER_STRING = 8;
+
+    /** The UTF-8 bytes of all the strings, one after the other */
+    private byte[] bytes;
+
+    /** Where each string starts in bytes; offsets[occupancy] is where the next one goes */
+    private int[] offsets;
+
+    /** Measures how many strings are stored */
+    private int occupancy;
+
+    /**
+     * Full constructor. Makes room for the specified number of strings. The size
+     * must be a positive, non zero value. Otherwise the constructor uses the
+     * default size value.
+     */
+    public CompactDynamicArray(int size) {
+        size = (size > 0) ? size : DEFAULT_SIZE;
+        this.bytes = new byte[size * BYTES_PER_STRING];
+        this.offsets = new int[size + 1];
+        this.occupancy = 0;
+    } // full constructor
+
+    /** Array-based constructor -- used for testing. Null strings are skipped. */
+    public CompactDynamicArray(String[] data) {
+        this((data != null) ? data.length : DEFAULT_SIZE);
+        if (data != null) {
+            for (int i = 0; i < data.length; i++) {
+                this.insert(data[i]);
+            }
+        }
+    } // array-based constructor
+
+    /** Default constructor */
+    public CompactDynamicArray() {
+        this(DEFAULT_SIZE);
+    } // default constructor
+
+    /** Returns the number of strings stored */
+    public int size() {
+        return this.occupancy;
+    } // method size
+
+    /**
+     * Checks if the specified string is present in the dynamic array. The target
+     * is encoded once and then compared byte by byte with each stored string.
+     * 
+     * @param target The string to search for in the array
+     * @return true if the string is found, false otherwise
+     */
+    public boolean contains(String target) {
+        boolean found = false;
+        if (target != null) {
+            byte[] encoded = target.getBytes(StandardCharsets.UTF_8);
+            int i = 0;
+            while (i < this.occupancy && !found) {
+                found = Arrays.equals(this.bytes, this.offsets[i], this.offsets[i + 1], encoded, 0, encoded.length);
+                i++;
+            }
+        }
+        return found;
+    } // method contains
+
+    /**
+     * Retrieves the string at the specified index in the array. This is where the
+     * String object is created from the stored bytes.
+     * 
+     * @param index The index of the string to retrieve
+     * @return The string at the specified index, or null if the index is invalid
+     */
+    public String get(int index) {
+        String string = null;
+        if (index >= 0 && index < this.occupancy) {
+            string = new String(this.bytes, this.offsets[index], this.offsets[index + 1] - this.offsets[index],
+                    StandardCharsets.UTF_8);
+        }
+        return string;
+    } // method get
+
+    /**
+     * Removes the string at the specified index in the array. The bytes after it
+     * are shifted left with one System.arraycopy; the offsets after it are moved
+     * one place left by a loop, which also subtracts the removed length from each.
+     * 
+     * @param index The index of the string to remove
+     * @return The string that was removed, or null if the index is invalid
+     */
+    public String remove(int index) {
+        String removed = null;
+        if (index >= 0 && index < this.occupancy) {
+            removed = this.get(index);
+            int start = this.offsets[index];
+            int end = this.offsets[index + 1];
+            int length = end - start;
+            System.arraycopy(this.bytes, end, this.bytes, start, this.offsets[this.occupancy] - end);
+            for (int i = index + 1; i <= this.occupancy; i++) {
+                this.offsets[i - 1] = this.offsets[i] - length;
+            }
+            this.occupancy--;
+        }
+        return removed;
+    } // method remove
+
+    /**
+     * Deletes the string at the specified index in the array.
+     * 
+     * This method uses this.remove and simply ignores the returned string.
+     * 
+     * @param index The index of the string to delete
+     */
+    public void delete(int index) {
+        remove(index);
+    } // method delete
+
+    /**
+     * Inserts a new string at the end of the dynamic array. Both arrays double when
+     * they run out of room.
+     * 
+     * @param string The string to insert into the array
+     */
+    public void insert(String string) {
+        // Guard against null argument
+        if (string != null) {
+            byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+            int start = this.offsets[this.occupancy];
+            if (start + encoded.length > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(start + encoded.length, 2 * this.bytes.length));
+            }
+            if (this.occupancy + 1 == this.offsets.length) {
+                this.offsets = Arrays.copyOf(this.offsets, 2 * this.offsets.length);
+            }
+            System.arraycopy(encoded, 0, this.bytes, start, encoded.length);
+            this.occupancy++;
+            this.offsets[this.occupancy] = start + encoded.length;
+        }
+    } // method insert
+
+    /**
+     * Returns the strings between brackets, followed by "null" for every free place,
+     * the same layout as DynamicArray.toString.
+     * 
+     * @return The format of the printing style of the dynamic array
+     */
+    public String toString() {
+        int capacity = this.offsets.length - 1;
+        StringBuilder format = new StringBuilder(this.offsets[this.occupancy] + 3 * capacity + 2);
+        format.append('[');
+        for (int i = 0; i < capacity; i++) {
+            format.append(i < this.occupancy ? this.get(i) : "null");
+            if (i < capacity - 1) {
+                format.append(" , ");
+            }
+        }
+        return format.append(']').toString();
+    } // method toString
+
+    /**
+     * Returns the index of the first occurrence of the string, ignoring case, or -1
+     * if it is not present. Same as DynamicArray.index.
+     * 
+     * The target is turned to lower case and encoded once. Stored strings made of
+     * ASCII characters only are compared straight from the bytes, turning 'A' to
+     * 'Z' to lower case on the fly. Only stored strings with other characters are
+     * turned back into Strings to compare. Strings are turned to lower case with
+     * the root locale, which agrees with the byte rule whatever the default locale
+     * is (in Turkish, "I" would otherwise become a dotless i).
+     * 
+     * @param string The string to look for
+     * @return The index of the first occurrence of the string, or -1
+     */
+    public int index(String string) {
+        int index = -1;
+        if (string != null) {
+            String target = string.toLowerCase(Locale.ROOT);
+            byte[] encoded = target.getBytes(StandardCharsets.UTF_8);
+            int i = 0;
+            while (i < this.occupancy && index == -1) {
+                if (this.equalsIgnoreCase(i, target, encoded)) {
+                    index = i;
+                }
+                i++;
+            }
+        }
+        return index;
+    } // method index
+
+    /** Compares string i with a lower-case target, given also as UTF-8 bytes */
+    private boolean equalsIgnoreCase(int i, String target, byte[] encoded) {
+        int start = this.offsets[i];
+        int end = this.offsets[i + 1];
+        for (int k = start; k < end; k++) {
+            if (this.bytes[k] < 0) {
+                // Not ASCII: let String handle the case rules
+                return this.get(i).toLowerCase(Locale.ROOT).equals(target);
+            }
+        }
+        if (end - start != encoded.length) {
+            return false;
+        }
+        for (int k = 0; k < encoded.length; k++) {
+            byte b = this.bytes[start + k];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != encoded[k]) {
+                return false;
+            }
+        }
+        return true;
+    } // method equalsIgnoreCase
+
+    /**
+     * Returns the percentage of places that hold a string, rounded to 2 decimal
+     * places. Same as DynamicArray.usage.
+     * 
+     * @return The percentage of non-null places
+     */
+    public double usage() {
+        double nonNullPercentage = 0.00;
+        if (this.occupancy > 0) {
+            nonNullPercentage = ((double) this.occupancy / (this.offsets.length - 1)) * 100.0;
+            nonNullPercentage = Math.round(nonNullPercentage * 100.0) / 100.0;
+        }
+        return nonNullPercentage;
+    } // method usage
+
+} // class CompactDynamicArray
@@ -0,0 +1,227 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A dynamic array of strings that many threads can insert into at the same time
+ * without locks.
+ * 
+ * DynamicArray grows by copying its whole array, which can't be done safely
+ * while other threads write into it. Instead, this class keeps its strings in
+ * buckets that are never copied: bucket 0 has room for 8 strings, bucket 1 for
+ * 16, bucket 2 for 32, and so on. Index i lives in the bucket given by the
+ * highest bit of i + 8, so finding a position takes a couple of bit operations.
+ * 
+ * An insert first reserves its index by atomically incrementing the occupancy
+ * counter, so every thread gets its own index without waiting for others. The
+ * next bucket is created ahead of time, by the one insert that reserves the
+ * middle index of the current bucket, so inserts normally find their bucket
+ * already there. Only if inserts get past that point before the next bucket is
+ * in place do several threads try to create it; each one checks again right
+ * before allocating and installs its bucket with compareAndSet, so one of them
+ * wins and the others use the winner's bucket. The string is then stored with a
+ * volatile write, which makes it visible to readers.
+ * 
+ * Reads never wait: get reads the counter, the bucket and the slot. A slot that
+ * has been reserved but not yet written by its inserting thread reads as null.
+ * 
+ * Strings can only be added, not removed, since removing would shift the
+ * positions other threads are writing to.
+ */
+public class ConcurrentDynamicArray {
+
+    /** Size of the first bucket; must be a power of two */
+    private static final int FIRST_BUCKET_SIZE = 8;
+
+    /** Number of bits in FIRST_BUCKET_SIZE - 1, used to find the bucket of an index */
+    private static final int FIRST_BUCKET_BITS = Integer.numberOfTrailingZeros(FIRST_BUCKET_SIZE);
+
+    /** Enough buckets to hold every index up to MAX_INDEX */
+    private static final int BUCKET_COUNT = 31 - FIRST_BUCKET_BITS;
+
+    /** Largest index that can be stored; index + FIRST_BUCKET_SIZE must not overflow */
+    private static final int MAX_INDEX = Integer.MAX_VALUE - FIRST_BUCKET_SIZE;
+
+    /** The buckets; bucket b has room for FIRST_BUCKET_SIZE << b strings */
+    private final AtomicReferenceArray<AtomicReferenceArray<String>> buckets;
+
+    /** Number of indexes reserved by inserts so far */
+    private final AtomicInteger occupancy;
+
+    /** Default constructor */
+    public ConcurrentDynamicArray() {
+        this.buckets = new AtomicReferenceArray<AtomicReferenceArray<String>>(BUCKET_COUNT);
+        this.buckets.set(0, new AtomicReferenceArray<String>(FIRST_BUCKET_SIZE));
+        this.occupancy = new AtomicInteger(0);
+    } // default constructor
+
+    /**
+     * Inserts a new string at the end of the dynamic array. Safe to call from any
+     * number of threads at once.
+     * 
+     * @param string The string to insert into the array; null is ignored
+     */
+    public void insert(String string) {
+        // Guard against null argument
+        if (string != null) {
+            int index = this.occupancy.getAndIncrement();
+            // Once past MAX_INDEX the counter keeps growing and eventually wraps to negative
+            if (index < 0 || index > MAX_INDEX) {
+                throw new IllegalStateException("ConcurrentDynamicArray is full");
+            }
+            this.bucketFor(index, true).set(offsetOf(index), string);
+            int b = bucketOf(index);
+            if (offsetOf(index) == (FIRST_BUCKET_SIZE << b) / 2 && b + 1 < BUCKET_COUNT) {
+                // Halfway through this bucket: only this insert gets here, so it creates the next one alone
+                this.installBucket(b + 1);
+            }
+        }
+    } // method insert
+
+    /**
+     * Retrieves the string at the specified index in the array. Never blocks.
+     * 
+     * @param index The index of the string to retrieve
+     * @return The string at the specified index, or null if the index is invalid
+     *         or its insert has not finished yet
+     */
+    public String get(int index) {
+        String string = null;
+        if (index >= 0 && index < this.occupancy.get()) {
+            AtomicReferenceArray<String> bucket = this.bucketFor(index, false);
+            if (bucket != null) {
+                string = bucket.get(offsetOf(index));
+            }
+        }
+        return string;
+    } // method get
+
+    /** Returns the number of strings inserted, including inserts still in progress */
+    public int size() {
+        return this.occupancy.get();
+    } // method size
+
+    /**
+     * Checks if the specified string is present in the dynamic array.
+     * 
+     * @param target The string to search for in the array
+     * @return true if the string is found, false otherwise
+     */
+    public boolean contains(String target) {
+        boolean found = false;
+        if (target != null) {
+            int size = this.size();
+            int i = 0;
+            while (i < size && !found) {
+                found = target.equals(this.get(i));
+                i++;
+            }
+        }
+        return found;
+    } // method contains
+
+    /**
+     * Returns the index of the first occurrence of the string, ignoring case, or -1
+     * if it is not present. Same as DynamicArray.index.
+     * 
+     * @param string The string to look for
+     * @return The index of the first occurrence of the string, or -1
+     */
+    public int index(String string) {
+        int index = -1;
+        if (string != null) {
+            String target = string.toLowerCase();
+            int size = this.size();
+            int i = 0;
+            while (i < size && index == -1) {
+                String element = this.get(i);
+                if (element != null && element.toLowerCase().equals(target)) {
+                    index = i;
+                }
+                i++;
+            }
+        }
+        return index;
+    } // method index
+
+    /**
+     * Returns the percentage of allocated places that hold a string, rounded to 2
+     * decimal places, like DynamicArray.usage.
+     * 
+     * @return The percentage of non-null places
+     */
+    public double usage() {
+        int nonNullCount = 0;
+        long capacity = 0;
+        for (int b = 0; b < BUCKET_COUNT; b++) {
+            AtomicReferenceArray<String> bucket = this.buckets.get(b);
+            if (bucket != null) {
+                capacity += bucket.length();
+                for (int i = 0; i < bucket.length(); i++) {
+                    if (bucket.get(i) != null) {
+                        nonNullCount++;
+                    }
+                }
+            }
+        }
+        double nonNullPercentage = ((double) nonNullCount / capacity) * 100.0;
+        return Math.round(nonNullPercentage * 100.0) / 100.0;
+    } // method usage
+
+    /**
+     * Returns the strings inserted so far between brackets, separated by commas.
+     * 
+     * @return The format of the printing style of the dynamic array
+     */
+    public String toString() {
+        int size = this.size();
+        if (size == 0) {
+            return "[ ]";
+        }
+        StringBuilder format = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            format.append(this.get(i));
+            if (i < size - 1) {
+                format.append(" , ");
+            }
+        }
+        return format.append("]").toString();
+    } // method toString
+
+    /**
+     * Returns the bucket that holds the given index. When create is true and the
+     * bucket does not exist yet, this thread installs one (see installBucket).
+     */
+    private AtomicReferenceArray<String> bucketFor(int index, boolean create) {
+        int b = bucketOf(index);
+        AtomicReferenceArray<String> bucket = this.buckets.get(b);
+        if (bucket == null && create) {
+            bucket = this.installBucket(b);
+        }
+        return bucket;
+    } // method bucketFor
+
+    /**
+     * Creates bucket b unless it exists, and returns the bucket that ends up there.
+     * The check is made again right before allocating, so a thread that lost the
+     * race by then doesn't build a bucket only to throw it away; if another thread
+     * installs one between the check and compareAndSet, that one is used instead.
+     */
+    private AtomicReferenceArray<String> installBucket(int b) {
+        if (this.buckets.get(b) == null) {
+            this.buckets.compareAndSet(b, null, new AtomicReferenceArray<String>(FIRST_BUCKET_SIZE << b));
+        }
+        return this.buckets.get(b);
+    } // method installBucket
+
+    /** Returns the bucket of an index: position of the highest bit of index + FIRST_BUCKET_SIZE */
+    private static int bucketOf(int index) {
+        return 31 - Integer.numberOfLeadingZeros(index + FIRST_BUCKET_SIZE) - FIRST_BUCKET_BITS;
+    } // method bucketOf
+
+    /** Returns the place of an index inside its bucket */
+    private static int offsetOf(int index) {
+        int position = index + FIRST_BUCKET_SIZE;
+        return position - Integer.highestOneBit(position);
+    } // method offsetOf
+
+} // class ConcurrentDynamicArray
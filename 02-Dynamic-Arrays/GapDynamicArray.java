@@ -0,0 +1,262 @@
+import java.util.Arrays;
+
+/**
+ * A dynamic array of strings with the same methods as DynamicArray, stored as a
+ * gap buffer so that removing and inserting in the middle is cheap.
+ * 
+ * In DynamicArray every removal shifts all the strings after it one position to
+ * the left. Here the free places of the underlying array are kept together as a
+ * "gap" that can sit anywhere in the array:
+ * 
+ * [ a , b , c , _ , _ , _ , d , e ]   strings a b c d e, gap of 3 after c
+ * 
+ * Removing or inserting at a position first moves the gap there, which copies
+ * only the strings between the old and the new gap position. After that, the
+ * removal or insertion itself takes O(1). A run of edits around the same place
+ * (for example many deletes near the front) therefore costs O(1) per edit
+ * instead of O(n). Reading a position is still a single array access: positions
+ * before the gap are read directly and positions after it are offset by the gap
+ * length.
+ */
+public class GapDynamicArray {
+
+    /** Default size for underlying array */
+    private static final int DEFAULT_SIZE = 4;
+
+    /** The underlying array, strings on both sides of the gap */
+    private String[] foundation;
+
+    /** First place of the gap; also the number of strings before the gap */
+    private int gapStart;
+
+    /** First place after the gap */
+    private int gapEnd;
+
+    /**
+     * Full constructor. Initializes the underlying array to the specified size. The
+     * size must be a positive, non zero value. Otherwise the constructor uses the
+     * default size value.
+     */
+    public GapDynamicArray(int size) {
+        size = (size > 0) ? size : DEFAULT_SIZE;
+        this.foundation = new String[size];
+        // The whole array is gap
+        this.gapStart = 0;
+        this.gapEnd = size;
+    } // full constructor
+
+    /**
+     * Array-based constructor -- used for testing. The strings are copied, with the
+     * gap left empty at the end.
+     */
+    public GapDynamicArray(String[] data) {
+        this(DEFAULT_SIZE);
+        if (data != null) {
+            this.foundation = new String[data.length];
+            System.arraycopy(data, 0, this.foundation, 0, data.length);
+            this.gapStart = data.length;
+            this.gapEnd = data.length;
+        }
+    } // array-based constructor
+
+    /** Default constructor */
+    public GapDynamicArray() {
+        this(DEFAULT_SIZE);
+    } // default constructor
+
+    /** Returns the number of strings stored */
+    public int size() {
+        return this.foundation.length - (this.gapEnd - this.gapStart);
+    } // method size
+
+    /**
+     * Checks if the specified string is present in the dynamic array.
+     * 
+     * @param target The string to search for in the array
+     * @return true if the string is found, false otherwise
+     */
+    public boolean contains(String target) {
+        boolean found = false;
+        if (target != null) {
+            int i = 0;
+            while (i < this.size() && !found) {
+                String string = this.get(i);
+                found = string != null && string.equals(target);
+                i++;
+            }
+        }
+        return found;
+    } // method contains
+
+    /**
+     * Retrieves the string at the specified index in the array.
+     * 
+     * @param index The index of the string to retrieve
+     * @return The string at the specified index, or null if the index is invalid
+     */
+    public String get(int index) {
+        String string = null;
+        if (index >= 0 && index < this.size()) {
+            // Positions after the gap are shifted right by the length of the gap
+            string = (index < this.gapStart) ? this.foundation[index]
+                    : this.foundation[index + this.gapEnd - this.gapStart];
+        }
+        return string;
+    } // method get
+
+    /**
+     * Removes the string at the specified index in the array. The gap is moved to
+     * the index and then widened by one place to swallow the string, so no other
+     * string moves unless the gap was elsewhere.
+     * 
+     * @param index The index of the string to remove
+     * @return The string that was removed, or null if the index is invalid
+     */
+    public String remove(int index) {
+        String removed = null;
+        if (index >= 0 && index < this.size()) {
+            this.moveGap(index);
+            // The string at index is now the first one after the gap
+            removed = this.foundation[this.gapEnd];
+            this.foundation[this.gapEnd] = null;
+            this.gapEnd++;
+        }
+        return removed;
+    } // method remove
+
+    /**
+     * Deletes the string at the specified index in the array.
+     * 
+     * This method uses this.remove and simply ignores the returned string.
+     * 
+     * @param index The index of the string to delete
+     */
+    public void delete(int index) {
+        remove(index);
+    } // method delete
+
+    /**
+     * Inserts a new string at the end of the dynamic array.
+     * 
+     * @param string The string to insert into the array
+     */
+    public void insert(String string) {
+        this.insert(string, this.size());
+    } // method insert
+
+    /**
+     * Inserts a new string at the given index, moving the strings from that index
+     * on one position to the right. Null strings and invalid indexes are ignored.
+     * 
+     * @param string The string to insert into the array
+     * @param index The position the string will have, from 0 to the number of strings
+     */
+    public void insert(String string, int index) {
+        if (string != null && index >= 0 && index <= this.size()) {
+            if (this.gapStart == this.gapEnd) {
+                this.resize();
+            }
+            this.moveGap(index);
+            this.foundation[this.gapStart] = string;
+            this.gapStart++;
+        }
+    } // method insert
+
+    /**
+     * Moves the gap so that it starts at the given position. Only the strings
+     * between the old and the new position of the gap are copied, in one
+     * System.arraycopy call.
+     */
+    private void moveGap(int position) {
+        int gapLength = this.gapEnd - this.gapStart;
+        if (position < this.gapStart) {
+            // Strings in [position, gapStart) move to the other side of the gap
+            int count = this.gapStart - position;
+            System.arraycopy(this.foundation, position, this.foundation, this.gapEnd - count, count);
+            // Clear the places that became part of the gap, so the array keeps no stale references
+            Arrays.fill(this.foundation, position, Math.min(this.gapStart, this.gapEnd - count), null);
+        } else if (position > this.gapStart) {
+            // Strings in [gapEnd, gapEnd + count) move to the front side of the gap
+            int count = position - this.gapStart;
+            System.arraycopy(this.foundation, this.gapEnd, this.foundation, this.gapStart, count);
+            Arrays.fill(this.foundation, Math.max(this.gapEnd, position), this.gapEnd + count, null);
+        }
+        this.gapStart = position;
+        this.gapEnd = position + gapLength;
+    } // method moveGap
+
+    /**
+     * Doubles the underlying array when the gap is used up. The new room is added
+     * to the gap, wherever the gap is.
+     */
+    private void resize() {
+        int length = this.foundation.length;
+        int newLength = Math.max(DEFAULT_SIZE, 2 * length);
+        String[] temp = new String[newLength];
+        int afterGap = length - this.gapEnd;
+        System.arraycopy(this.foundation, 0, temp, 0, this.gapStart);
+        System.arraycopy(this.foundation, this.gapEnd, temp, newLength - afterGap, afterGap);
+        this.foundation = temp;
+        this.gapEnd = newLength - afterGap;
+    } // method resize
+
+    /**
+     * Returns the strings in order between brackets, followed by "null" for every
+     * free place, the same layout as DynamicArray.toString.
+     * 
+     * @return The format of the printing style of the dynamic array
+     */
+    public String toString() {
+        if (this.foundation.length == 0) {
+            return "[ ]";
+        }
+        StringBuilder format = new StringBuilder("[");
+        int size = this.size();
+        for (int i = 0; i < this.foundation.length; i++) {
+            format.append(i < size ? this.get(i) : "null");
+            if (i < this.foundation.length - 1) {
+                format.append(" , ");
+            }
+        }
+        return format.append("]").toString();
+    } // method toString
+
+    /**
+     * Returns the index of the first occurrence of the string, ignoring case, or -1
+     * if it is not present. Same as DynamicArray.index.
+     * 
+     * @param string The string to look for
+     * @return The index of the first occurrence of the string, or -1
+     */
+    public int index(String string) {
+        int index = -1;
+        if (string != null) {
+            String target = string.toLowerCase();
+            int i = 0;
+            while (i < this.size() && index == -1) {
+                String element = this.get(i);
+                if (element != null && element.toLowerCase().equals(target)) {
+                    index = i;
+                }
+                i++;
+            }
+        }
+        return index;
+    } // method index
+
+    /**
+     * Returns the percentage of places in the underlying array that hold a string,
+     * rounded to 2 decimal places. Same as DynamicArray.usage.
+     * 
+     * @return The percentage of non-null places
+     */
+    public double usage() {
+        double nonNullPercentage = 0.00;
+        if (this.size() > 0) {
+            nonNullPercentage = ((double) this.size() / this.foundation.length) * 100.0;
+            nonNullPercentage = Math.round(nonNullPercentage * 100.0) / 100.0;
+        }
+        return nonNullPercentage;
+    } // method usage
+
+} // class GapDynamicArray
@@ -0,0 +1,265 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A dynamic array of int values with the same methods as DynamicArray.
+ * 
+ * Storing numbers in DynamicArray means turning them into Strings, and a
+ * collection of Integer objects boxes every value. Here the values sit directly
+ * in an int[], next to each other in memory, which takes a fraction of the
+ * space and lets loops over them run at full speed.
+ * 
+ * Since an int can't be null, get and remove throw IndexOutOfBoundsException for
+ * an invalid index instead of returning null. The bulk operations sum, min and
+ * max are plain loops that read the array in order, and fill uses Arrays.fill,
+ * which the JIT compiler turns into vector instructions. sum widens every value
+ * to a long so that it can't overflow, which keeps it one value at a time.
+ */
+public class IntDynamicArray {
+
+    /** Default size for underlying array */
+    private static final int DEFAULT_SIZE = 4;
+
+    /** The underlying array for this class */
+    private int[] foundation;
+
+    /** Measures how many places in the array are in use */
+    private int occupancy;
+
+    /**
+     * Full constructor. Initializes the underlying array to the specified size. The
+     * size must be a positive, non zero value. Otherwise the constructor uses the
+     * default size value.
+     */
+    public IntDynamicArray(int size) {
+        size = (size > 0) ? size : DEFAULT_SIZE;
+        this.foundation = new int[size];
+        this.occupancy = 0;
+    } // full constructor
+
+    /** Array-based constructor -- used for testing. The values are copied. */
+    public IntDynamicArray(int[] data) {
+        this(DEFAULT_SIZE);
+        if (data != null) {
+            this.foundation = Arrays.copyOf(data, data.length);
+            this.occupancy = data.length;
+        }
+    } // array-based constructor
+
+    /** Default constructor */
+    public IntDynamicArray() {
+        this(DEFAULT_SIZE);
+    } // default constructor
+
+    /** Returns the number of values stored */
+    public int size() {
+        return this.occupancy;
+    } // method size
+
+    /**
+     * Checks if the specified value is present in the dynamic array.
+     * 
+     * @param target The value to search for in the array
+     * @return true if the value is found, false otherwise
+     */
+    public boolean contains(int target) {
+        return this.index(target) != -1;
+    } // method contains
+
+    /**
+     * Returns the index of the first occurrence of the value, or -1 if it is not present.
+     * 
+     * @param target The value to look for
+     * @return The index of the first occurrence of the value, or -1
+     */
+    public int index(int target) {
+        for (int i = 0; i < this.occupancy; i++) {
+            if (this.foundation[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    } // method index
+
+    /**
+     * Retrieves the value at the specified index in the array.
+     * 
+     * @param index The index of the value to retrieve
+     * @return The value at the specified index
+     * @throws IndexOutOfBoundsException if the index is not between 0 and size() - 1
+     */
+    public int get(int index) {
+        this.checkIndex(index);
+        return this.foundation[index];
+    } // method get
+
+    /**
+     * Removes the value at the specified index and moves every value after it one
+     * position to the left.
+     * 
+     * @param index The index of the value to remove
+     * @return The value that was removed
+     * @throws IndexOutOfBoundsException if the index is not between 0 and size() - 1
+     */
+    public int remove(int index) {
+        this.checkIndex(index);
+        int removed = this.foundation[index];
+        System.arraycopy(this.foundation, index + 1, this.foundation, index, this.occupancy - 1 - index);
+        this.occupancy--;
+        return removed;
+    } // method remove
+
+    /**
+     * Deletes the value at the specified index in the array.
+     * 
+     * This method uses this.remove and simply ignores the returned value.
+     * 
+     * @param index The index of the value to delete
+     */
+    public void delete(int index) {
+        remove(index);
+    } // method delete
+
+    /**
+     * Inserts a new value at the end of the dynamic array, doubling the underlying
+     * array if it is full.
+     * 
+     * @param value The value to insert into the array
+     */
+    public void insert(int value) {
+        if (this.occupancy == this.foundation.length) {
+            this.ensureCapacity(this.occupancy + 1);
+        }
+        this.foundation[this.occupancy] = value;
+        this.occupancy++;
+    } // method insert
+
+    /**
+     * Inserts every value of the given array, in order, at the end of the dynamic
+     * array, with a single copy.
+     * 
+     * @param values The values to insert into the array
+     */
+    public void insertAll(int[] values) {
+        if (values != null) {
+            this.ensureCapacity(this.occupancy + values.length);
+            System.arraycopy(values, 0, this.foundation, this.occupancy, values.length);
+            this.occupancy += values.length;
+        }
+    } // method insertAll
+
+    /**
+     * Makes sure the underlying array has room for at least the given number of
+     * values, at least doubling it when it grows.
+     * 
+     * @param capacity The number of values the array must be able to hold
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > this.foundation.length) {
+            int grown = (int) Math.min(Integer.MAX_VALUE - 8, 2L * this.foundation.length);
+            this.foundation = Arrays.copyOf(this.foundation, Math.max(capacity, grown));
+        }
+    } // method ensureCapacity
+
+    /** Shrinks the underlying array to the number of values in use. */
+    public void trimToSize() {
+        if (this.occupancy < this.foundation.length) {
+            this.foundation = Arrays.copyOf(this.foundation, this.occupancy);
+        }
+    } // method trimToSize
+
+    /** Returns the sum of the values, as a long so that it does not overflow */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < this.occupancy; i++) {
+            sum += this.foundation[i];
+        }
+        return sum;
+    } // method sum
+
+    /**
+     * Returns the smallest value.
+     * 
+     * @throws NoSuchElementException if the array is empty
+     */
+    public int min() {
+        this.checkNotEmpty();
+        int min = this.foundation[0];
+        for (int i = 1; i < this.occupancy; i++) {
+            min = Math.min(min, this.foundation[i]);
+        }
+        return min;
+    } // method min
+
+    /**
+     * Returns the largest value.
+     * 
+     * @throws NoSuchElementException if the array is empty
+     */
+    public int max() {
+        this.checkNotEmpty();
+        int max = this.foundation[0];
+        for (int i = 1; i < this.occupancy; i++) {
+            max = Math.max(max, this.foundation[i]);
+        }
+        return max;
+    } // method max
+
+    /**
+     * Sets every value in use to the given value.
+     * 
+     * @param value The value to store in every position
+     */
+    public void fill(int value) {
+        Arrays.fill(this.foundation, 0, this.occupancy, value);
+    } // method fill
+
+    /**
+     * Returns the percentage of places in the underlying array that are in use,
+     * rounded to 2 decimal places, like DynamicArray.usage.
+     * 
+     * @return The percentage of places in use
+     */
+    public double usage() {
+        double percentage = 0.00;
+        if (this.occupancy > 0) {
+            percentage = ((double) this.occupancy / this.foundation.length) * 100.0;
+            percentage = Math.round(percentage * 100.0) / 100.0;
+        }
+        return percentage;
+    } // method usage
+
+    /**
+     * Returns the values in use between brackets, separated by commas.
+     * 
+     * @return The format of the printing style of the dynamic array
+     */
+    public String toString() {
+        if (this.occupancy == 0) {
+            return "[ ]";
+        }
+        StringBuilder format = new StringBuilder("[");
+        for (int i = 0; i < this.occupancy; i++) {
+            format.append(this.foundation[i]);
+            if (i < this.occupancy - 1) {
+                format.append(" , ");
+            }
+        }
+        return format.append(']').toString();
+    } // method toString
+
+    /** Throws IndexOutOfBoundsException unless the index is in use */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.occupancy) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + this.occupancy);
+        }
+    } // method checkIndex
+
+    /** Throws NoSuchElementException if there are no values */
+    private void checkNotEmpty() {
+        if (this.occupancy == 0) {
+            throw new NoSuchElementException("The array is empty");
+        }
+    } // method checkNotEmpty
+
+} // class IntDynamicArray
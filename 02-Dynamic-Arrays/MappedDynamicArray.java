@@ -0,0 +1,325 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A dynamic array of strings kept in a memory-mapped file, so that it survives
+ * a restart without being rebuilt.
+ * 
+ * The strings live in a data file as records, one after the other, each one the
+ * length of the string in bytes followed by its UTF-8 bytes:
+ * 
+ * [ header | 3 c a t | 3 d o g | 5 h o r s e ]
+ * 
+ * The header holds a magic number, the number of strings and where the next
+ * record goes. The last two share one aligned 8-byte word that is written with
+ * a single putLong, so a crash can never leave one updated without the other. A second file, the index (same name plus ".idx"), holds the
+ * position of each record, so get(i) can jump straight to record i.
+ * 
+ * Both files are mapped into memory, so an insert writes its record directly
+ * into the mapped pages and the operating system saves them to disk. Opening an
+ * existing array only reads the header: the pages of the strings are loaded the
+ * first time they are read. Call force() to make sure everything written so far
+ * is on disk.
+ * 
+ * The header is updated after the record and the index entry, so if the process
+ * crashes (the mapped pages are still saved by the operating system) a reopened
+ * array only ever sees complete records. A power loss is different: the
+ * operating system may have saved the header but not the pages it points to, so
+ * only what was written before the last force() is safe. The index is checked
+ * when the array is opened and rebuilt from the records if it is missing, too
+ * short, or does not end at the last record.
+ * 
+ * Strings can only be appended, as in a log. The data file is limited to 2 GB,
+ * the largest region a single mapping can cover.
+ */
+public class MappedDynamicArray implements Closeable {
+
+    /** Marks a file as a MappedDynamicArray data file ("DYNA") */
+    private static final int MAGIC = 0x44594E41;
+
+    /** Header: magic number, reserved, then the number of strings and the end of the last record */
+    private static final int HEADER_SIZE = 16;
+    /** The number of strings and the end share the long at STATE_POSITION */
+    private static final int STATE_POSITION = 8;
+    private static final int COUNT_POSITION = 8;
+    private static final int END_POSITION = 12;
+
+    /** Starting size of the mappings; they double when they fill up */
+    private static final int INITIAL_DATA_SIZE = 1 << 16;
+    private static final int INITIAL_INDEX_SIZE = 1 << 12;
+
+    /** Bytes per entry in the index file */
+    private static final int INDEX_ENTRY_SIZE = Integer.BYTES;
+
+    private final FileChannel dataChannel;
+    private final FileChannel indexChannel;
+    private MappedByteBuffer data;
+    private MappedByteBuffer index;
+
+    /** Measures how many strings are stored */
+    private int occupancy;
+
+    /** Position in the data file where the next record goes */
+    private int end;
+
+    /** Opens the files; use open() to create an array */
+    private MappedDynamicArray(FileChannel dataChannel, FileChannel indexChannel) {
+        this.dataChannel = dataChannel;
+        this.indexChannel = indexChannel;
+    } // full constructor
+
+    /**
+     * Opens the array stored at the given path, creating it if the file does not
+     * exist yet. The index file is path plus ".idx"; if it is missing, shorter
+     * than it should be or out of step with the data file, it is rebuilt by
+     * walking the records once.
+     * 
+     * @param path The data file of the array
+     * @return The opened array
+     * @throws IOException if the files can't be opened or are not a MappedDynamicArray
+     */
+    public static MappedDynamicArray open(Path path) throws IOException {
+        Path indexPath = path.resolveSibling(path.getFileName() + ".idx");
+        FileChannel dataChannel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedDynamicArray array = new MappedDynamicArray(dataChannel, indexChannel);
+        try {
+            array.load();
+        } catch (IOException | RuntimeException e) {
+            array.close();
+            throw e;
+        }
+        return array;
+    } // method open
+
+    /** Maps the files and reads the header, or writes one for a new file */
+    private void load() throws IOException {
+        boolean isNew = this.dataChannel.size() == 0;
+        if (!isNew) {
+            // Check the magic number before mapping, since mapping would make a foreign file grow
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            this.dataChannel.read(magic, 0);
+            if (this.dataChannel.size() < HEADER_SIZE || magic.getInt(0) != MAGIC) {
+                throw new IOException("Not a MappedDynamicArray file");
+            }
+        }
+        // Read the size of the index before mapping it, since mapping makes the file grow
+        long indexSize = this.indexChannel.size();
+        this.data = this.map(this.dataChannel, Math.max(this.dataChannel.size(), INITIAL_DATA_SIZE));
+        this.index = this.map(this.indexChannel, Math.max(indexSize, INITIAL_INDEX_SIZE));
+        if (isNew) {
+            this.data.putInt(0, MAGIC);
+            this.writeHeader(0, HEADER_SIZE);
+        }
+        this.occupancy = this.data.getInt(COUNT_POSITION);
+        this.end = this.data.getInt(END_POSITION);
+        if (indexSize < (long) this.occupancy * INDEX_ENTRY_SIZE || !this.indexMatchesData()) {
+            this.rebuildIndex();
+        }
+    } // method load
+
+    /**
+     * Checks the ends of the index against the data file: the first entry must
+     * point just after the header and the last record must end where the header
+     * says the data ends. An index that was never written is all zeros and fails.
+     */
+    private boolean indexMatchesData() {
+        if (this.occupancy == 0) {
+            return this.end == HEADER_SIZE;
+        }
+        int first = this.index.getInt(0);
+        int last = this.index.getInt((this.occupancy - 1) * INDEX_ENTRY_SIZE);
+        return first == HEADER_SIZE && last >= HEADER_SIZE && last <= this.end - Integer.BYTES
+                && (long) last + Integer.BYTES + this.data.getInt(last) == this.end;
+    } // method indexMatchesData
+
+    /**
+     * Writes the index entry of every record by walking the data file. Only the
+     * number of strings is trusted: the end is set to just after the last of them,
+     * so a record past it is dropped and the next insert writes over it.
+     */
+    private void rebuildIndex() throws IOException {
+        this.ensureIndexCapacity(this.occupancy);
+        int position = HEADER_SIZE;
+        for (int i = 0; i < this.occupancy; i++) {
+            this.index.putInt(i * INDEX_ENTRY_SIZE, position);
+            position += Integer.BYTES + this.data.getInt(position);
+        }
+        if (position != this.end) {
+            this.writeHeader(this.occupancy, position);
+        }
+    } // method rebuildIndex
+
+    /** Returns the number of strings stored */
+    public int size() {
+        return this.occupancy;
+    } // method size
+
+    /**
+     * Inserts a new string at the end of the dynamic array. The record is written
+     * into the mapped data file, then its index entry, and last the header.
+     * 
+     * @param string The string to insert into the array; null is ignored
+     * @throws UncheckedIOException if the files can't grow
+     */
+    public void insert(String string) {
+        // Guard against null argument
+        if (string != null) {
+            byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+            long newEnd = (long) this.end + Integer.BYTES + encoded.length;
+            if (newEnd > Integer.MAX_VALUE) {
+                throw new IllegalStateException("MappedDynamicArray is limited to 2 GB of data");
+            }
+            try {
+                this.ensureDataCapacity((int) newEnd);
+                this.ensureIndexCapacity(this.occupancy + 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.data.putInt(this.end, encoded.length);
+            this.data.put(this.end + Integer.BYTES, encoded);
+            this.index.putInt(this.occupancy * INDEX_ENTRY_SIZE, this.end);
+            this.writeHeader(this.occupancy + 1, (int) newEnd);
+        }
+    } // method insert
+
+    /**
+     * Retrieves the string at the specified index in the array. Its record is read
+     * from the mapped file, which loads the page from disk if needed.
+     * 
+     * @param index The index of the string to retrieve
+     * @return The string at the specified index, or null if the index is invalid
+     */
+    public String get(int index) {
+        String string = null;
+        if (index >= 0 && index < this.occupancy) {
+            int position = this.index.getInt(index * INDEX_ENTRY_SIZE);
+            byte[] encoded = new byte[this.data.getInt(position)];
+            this.data.get(position + Integer.BYTES, encoded);
+            string = new String(encoded, StandardCharsets.UTF_8);
+        }
+        return string;
+    } // method get
+
+    /**
+     * Checks if the specified string is present in the dynamic array. Records of a
+     * different length are skipped without reading their bytes.
+     * 
+     * @param target The string to search for in the array
+     * @return true if the string is found, false otherwise
+     */
+    public boolean contains(String target) {
+        boolean found = false;
+        if (target != null) {
+            byte[] encoded = target.getBytes(StandardCharsets.UTF_8);
+            int i = 0;
+            while (i < this.occupancy && !found) {
+                int position = this.index.getInt(i * INDEX_ENTRY_SIZE);
+                found = this.data.getInt(position) == encoded.length
+                        && this.data.slice(position + Integer.BYTES, encoded.length)
+                                .equals(ByteBuffer.wrap(encoded));
+                i++;
+            }
+        }
+        return found;
+    } // method contains
+
+    /**
+     * Returns the index of the first occurrence of the string, ignoring case, or -1
+     * if it is not present. Same as DynamicArray.index.
+     * 
+     * @param string The string to look for
+     * @return The index of the first occurrence of the string, or -1
+     */
+    public int index(String string) {
+        int index = -1;
+        if (string != null) {
+            String target = string.toLowerCase();
+            int i = 0;
+            while (i < this.occupancy && index == -1) {
+                if (this.get(i).toLowerCase().equals(target)) {
+                    index = i;
+                }
+                i++;
+            }
+        }
+        return index;
+    } // method index
+
+    /**
+     * Returns the strings between brackets, separated by commas.
+     * 
+     * @return The format of the printing style of the dynamic array
+     */
+    public String toString() {
+        if (this.occupancy == 0) {
+            return "[ ]";
+        }
+        StringBuilder format = new StringBuilder("[");
+        for (int i = 0; i < this.occupancy; i++) {
+            format.append(this.get(i));
+            if (i < this.occupancy - 1) {
+                format.append(" , ");
+            }
+        }
+        return format.append(']').toString();
+    } // method toString
+
+    /** Writes every change made so far to disk. */
+    public void force() {
+        this.data.force();
+        this.index.force();
+    } // method force
+
+    /** Writes every change to disk and closes the files. */
+    public void close() throws IOException {
+        try {
+            if (this.data != null) {
+                this.force();
+            }
+        } finally {
+            this.dataChannel.close();
+            this.indexChannel.close();
+        }
+    } // method close
+
+    /** Updates the number of strings and the end of the data, in memory and in the header */
+    private void writeHeader(int occupancy, int end) {
+        // One store for both, so they can't get out of step
+        this.data.putLong(STATE_POSITION, ((long) occupancy << 32) | (end & 0xFFFFFFFFL));
+        this.occupancy = occupancy;
+        this.end = end;
+    } // method writeHeader
+
+    /** Remaps the data file with at least the given size, doubling it */
+    private void ensureDataCapacity(int size) throws IOException {
+        if (size > this.data.capacity()) {
+            long grown = Math.min(Integer.MAX_VALUE, 2L * this.data.capacity());
+            this.data = this.map(this.dataChannel, Math.max(size, grown));
+        }
+    } // method ensureDataCapacity
+
+    /** Remaps the index file with room for at least the given number of entries, doubling it */
+    private void ensureIndexCapacity(int entries) throws IOException {
+        long size = (long) entries * INDEX_ENTRY_SIZE;
+        if (size > this.index.capacity()) {
+            long grown = Math.min(Integer.MAX_VALUE, 2L * this.index.capacity());
+            this.index = this.map(this.indexChannel, Math.max(size, grown));
+        }
+    } // method ensureIndexCapacity
+
+    /** Maps the first size bytes of a file, which makes the file grow if it is shorter */
+    private MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } // method map
+
+} // class MappedDynamicArray
@@ -0,0 +1,114 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+public class MappedDynamicArrayTest {
+
+   /** Returns a data file path in a new temporary directory */
+   private Path newPath() throws IOException {
+      return Files.createTempDirectory("mapped").resolve("array.dat");
+   }
+
+   /** Returns the index file of the array stored at path */
+   private Path indexPath(Path path) {
+      return path.resolveSibling(path.getFileName() + ".idx");
+   }
+
+   /** Stores the given strings in a new array at path and closes it */
+   private void write(Path path, String... strings) throws IOException {
+      try (MappedDynamicArray array = MappedDynamicArray.open(path)) {
+         for (String string : strings) {
+            array.insert(string);
+         }
+      }
+   }
+
+   @Test
+   public void testReopen() throws IOException {
+      Path path = newPath();
+      write(path, "cat", "dog", "horse");
+      try (MappedDynamicArray array = MappedDynamicArray.open(path)) {
+         assertEquals(3, array.size());
+         assertEquals("cat", array.get(0));
+         assertEquals("horse", array.get(2));
+         assertNull(array.get(3));
+         assertTrue(array.contains("dog"));
+         assertFalse(array.contains("Dog"));
+         assertEquals(1, array.index("DOG"));
+      }
+   }
+
+   @Test
+   public void testMissingIndexIsRebuilt() throws IOException {
+      Path path = newPath();
+      write(path, "cat", "dog", "horse");
+      Files.delete(indexPath(path));
+      try (MappedDynamicArray array = MappedDynamicArray.open(path)) {
+         assertEquals(3, array.size());
+         assertEquals("cat", array.get(0));
+         assertEquals("dog", array.get(1));
+         assertEquals("horse", array.get(2));
+         array.insert("mouse");
+         assertEquals("mouse", array.get(3));
+      }
+   }
+
+   @Test
+   public void testTruncatedIndexIsRebuilt() throws IOException {
+      Path path = newPath();
+      write(path, "cat", "dog", "horse");
+      try (RandomAccessFile index = new RandomAccessFile(indexPath(path).toFile(), "rw")) {
+         index.setLength(4);
+      }
+      try (MappedDynamicArray array = MappedDynamicArray.open(path)) {
+         assertEquals("[cat , dog , horse]", array.toString());
+      }
+   }
+
+   @Test
+   public void testZeroedIndexIsRebuilt() throws IOException {
+      Path path = newPath();
+      write(path, "cat", "dog", "horse");
+      // Long enough, but the entries never reached the disk
+      try (RandomAccessFile index = new RandomAccessFile(indexPath(path).toFile(), "rw")) {
+         index.write(new byte[4096]);
+      }
+      try (MappedDynamicArray array = MappedDynamicArray.open(path)) {
+         assertEquals("horse", array.get(2));
+         assertEquals("cat", array.get(0));
+      }
+   }
+
+   @Test
+   public void testEndPastCountIsIgnored() throws IOException {
+      Path path = newPath();
+      write(path, "cat", "dog");
+      // A crash between writing the end and the count: the end covers dog, the count does not
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+         channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1), 8);
+      }
+      try (MappedDynamicArray array = MappedDynamicArray.open(path)) {
+         assertEquals(1, array.size());
+         assertEquals("cat", array.get(0));
+         assertNull(array.get(1));
+         array.insert("horse");
+         assertEquals("horse", array.get(1));
+      }
+      Files.delete(indexPath(path));
+      try (MappedDynamicArray array = MappedDynamicArray.open(path)) {
+         assertEquals("[cat , horse]", array.toString());
+      }
+   }
+
+}
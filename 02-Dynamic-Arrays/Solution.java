@@ -1,3 +1,7 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+
 /**
  * A simple class to demonstrate dynamic behavior with arrays. Objects of this
  * class store strings in an array that grows to match the demand for storage.
@@ -13,30 +17,69 @@
  * DynamicArray da2 = new DynamicArray();
  * 
  * will have initially room for 4 strings.
+ * 
+ * When the array is full, it grows by a growth factor (2 by default) instead of
+ * by a single slot, so that a long run of inserts only copies the array a few
+ * times.
+ * 
+ * Searches scan the array unless the hash index is turned on with enableIndex().
+ * The index makes contains O(1) at the cost of a few hash maps. index is O(1)
+ * as long as strings are only appended or removed from the end; removing from
+ * the middle makes the next index rebuild the positions in O(n), so a loop
+ * that alternates such removals with index calls is O(n) per call, no better
+ * than a scan.
  */
 public class DynamicArray {
 
     /** Default size for underlying array */
     private static final int DEFAULT_SIZE = 4;
 
+    /** Default factor by which the underlying array grows when it is full */
+    private static final double DEFAULT_GROWTH_FACTOR = 2.0;
+
     /** The underlying array for this class */
     private String[] foundation;
 
     /** Measures how many places in the array are in use */
     private int occupancy;
 
+    /** Counts the places in the array that hold a string, kept up to date by every change */
+    private int nonNullCount;
+
+    /** Factor by which the underlying array grows when it is full */
+    private double growthFactor;
+
+    /** Hash index: how many times each string is stored (null when the index is off) */
+    private HashMap<String, Integer> counts;
+    /** Hash index: position of the first occurrence of each string */
+    private HashMap<String, Integer> firstExact;
+    /** Hash index: position of the first occurrence of each lower-case string */
+    private HashMap<String, Integer> firstIgnoreCase;
+    /** True when a removal shifted strings and the positions in the index must be rebuilt */
+    private boolean positionsStale;
+
     /**
      * Full constructor. Initializes the underlying array to the specified size. The
      * size must be a positive, non zero value. Otherwise the constructor uses the
-     * default size value.
+     * default size value. The growth factor must be larger than 1. Otherwise the
+     * constructor uses the default growth factor.
      */
-    public DynamicArray(int size) {
+    public DynamicArray(int size, double growthFactor) {
         // If size <= 0 use default -- this is a good time to demo ternary operator
         size = (size > 0) ? size : DEFAULT_SIZE;
         this.foundation = new String[size];
         this.occupancy = 0;
+        this.growthFactor = (growthFactor > 1.0) ? growthFactor : DEFAULT_GROWTH_FACTOR;
     } // full constructor
 
+    /**
+     * Size-based constructor. Initializes the underlying array to the specified
+     * size, using the default growth factor.
+     */
+    public DynamicArray(int size) {
+        this(size, DEFAULT_GROWTH_FACTOR);
+    } // size-based constructor
+
     /**
      * Array-based constructor -- used for testing.
      * 
@@ -50,10 +93,13 @@ public class DynamicArray {
             // Create a deep copy of data into foundation
             // this foundation = data;
             this.foundation = new String[data.length];
-            for (int i = 0;i < data.length;i++) {
-                this.foundation[i] = data[i];
-            }
+            System.arraycopy(data, 0, this.foundation, 0, data.length);
             this.occupancy = data.length;
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] != null) {
+                    this.nonNullCount++;
+                }
+            }
         }
     } // array-based constructor
 
@@ -71,6 +117,10 @@ public class DynamicArray {
      * @return true if the string is found, false otherwise
      */
     public boolean contains(String target) {
+        // With the hash index on, the counts answer right away
+        if (this.counts != null) {
+            return target != null && this.counts.containsKey(target);
+        }
         boolean found = false;
         /*
          * Before introducing this.occupancy in the object, the method traversed
@@ -123,17 +173,20 @@ public class DynamicArray {
         String removed = null;
         // We check occupancy, because there is no reason to perform this in an empty
         // array
-        if (this.occupancy > 0 && index >= 0 && index < this.foundation.length) {
+        // Only used places can be removed; past occupancy there is nothing to shift
+        if (this.occupancy > 0 && index >= 0 && index < this.occupancy) {
             removed = this.foundation[index];
             this.foundation[index] = null;
             // Shift things after the removed string, one position to the left
-            for (int i = index; i < occupancy - 1; i++) {
-                this.foundation[i] = this.foundation[i + 1];
-            }
+            System.arraycopy(this.foundation, index + 1, this.foundation, index, this.occupancy - 1 - index);
             // Previously last occupied cell, now empty
             this.foundation[occupancy - 1] = null;
             // update occupancy
             this.occupancy--;
+            if (removed != null) {
+                this.nonNullCount--;
+            }
+            this.removeFromIndex(removed, index);
         }
         return removed;
     } // method remove
@@ -150,26 +203,47 @@ public class DynamicArray {
     } // method delete
 
     /**
-     * Resizes the underlying array by increasing its capacity by 1.
+     * Resizes the underlying array by multiplying its capacity by the growth factor
+     * (and by at least 1).
      * 
      * This method is called internally when the current array reaches its capacity
-     * and a new element needs to be inserted.
+     * and a new element needs to be inserted. Growing by a factor instead of by 1
+     * means n inserts copy the array only about log(n) times, so each insert costs
+     * O(1) on average.
      */
     private void resize() {
-        String[] temp = new String[this.foundation.length + 1];
-        /*
-         * Instead of:
-         * for (int i = 0; i < this.foundation.length; i++) {
-         * we can write
-         * for (int i = 0; i < this.occupancy; i++) {
-         * since there is no reason to copy null values from one array to another.
-         */
-        for (int i = 0; i < this.occupancy; i++) {
-            temp[i] = this.foundation[i];
-        }
-        this.foundation = temp;
+        this.ensureCapacity(this.foundation.length + 1);
     } // method resize
 
+    /**
+     * Makes sure the underlying array has room for at least the given number of
+     * strings. When it grows, it grows by the growth factor, or straight to the
+     * requested capacity if that is larger.
+     * 
+     * @param capacity The number of strings the array must be able to hold
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > this.foundation.length) {
+            int grown = (int) Math.min(Integer.MAX_VALUE - 8, (long) (this.foundation.length * this.growthFactor));
+            String[] temp = new String[Math.max(capacity, grown)];
+            // There is no reason to copy null values from one array to another.
+            System.arraycopy(this.foundation, 0, temp, 0, this.occupancy);
+            this.foundation = temp;
+        }
+    } // method ensureCapacity
+
+    /**
+     * Shrinks the underlying array to the number of strings in use, releasing the
+     * room left over by growing.
+     */
+    public void trimToSize() {
+        if (this.occupancy < this.foundation.length) {
+            String[] temp = new String[this.occupancy];
+            System.arraycopy(this.foundation, 0, temp, 0, this.occupancy);
+            this.foundation = temp;
+        }
+    } // method trimToSize
+
     /**
      * Inserts a new string into the dynamic array.
      * 
@@ -187,10 +261,126 @@ public class DynamicArray {
             }
             // Room in underlying array assured
             this.foundation[this.occupancy] = string;
+            this.addToIndex(string, this.occupancy);
             this.occupancy++;
+            this.nonNullCount++;
         }
     } // method insert
 
+    /**
+     * Inserts every string of the given array, in order, at the end of the
+     * dynamic array. Null strings are skipped, as in insert. The array grows at most
+     * once, and when there are no nulls the strings are copied in one step.
+     * 
+     * @param strings The strings to insert into the array
+     */
+    public void insertAll(String[] strings) {
+        // Guard against null argument
+        if (strings != null) {
+            int nonNullCount = 0;
+            for (int i = 0; i < strings.length; i++) {
+                if (strings[i] != null) {
+                    nonNullCount++;
+                }
+            }
+            this.ensureCapacity(this.occupancy + nonNullCount);
+            this.nonNullCount += nonNullCount;
+            if (nonNullCount == strings.length) {
+                System.arraycopy(strings, 0, this.foundation, this.occupancy, strings.length);
+                if (this.counts != null) {
+                    for (int i = 0; i < strings.length; i++) {
+                        this.addToIndex(strings[i], this.occupancy + i);
+                    }
+                }
+                this.occupancy += strings.length;
+            } else {
+                for (int i = 0; i < strings.length; i++) {
+                    if (strings[i] != null) {
+                        this.foundation[this.occupancy] = strings[i];
+                        this.addToIndex(strings[i], this.occupancy);
+                        this.occupancy++;
+                    }
+                }
+            }
+        }
+    } // method insertAll
+
+    /**
+     * Turns on the hash index. From now on contains and index are answered from
+     * hash maps that are updated by every insert and removal, instead of by
+     * scanning the array.
+     * 
+     * Inserting at the end (and removing the last string) keeps the index up to
+     * date directly. Removing any other string shifts the strings after it, so
+     * only the counts are updated right away and the positions are rebuilt by the
+     * next call to index. Several removals in a row share one rebuild, but each
+     * rebuild is a full O(n) pass.
+     */
+    public void enableIndex() {
+        if (this.counts == null) {
+            this.counts = new HashMap<String, Integer>();
+            this.firstExact = new HashMap<String, Integer>();
+            this.firstIgnoreCase = new HashMap<String, Integer>();
+            for (int i = 0; i < this.occupancy; i++) {
+                this.addToIndex(this.foundation[i], i);
+            }
+            this.positionsStale = false;
+        }
+    } // method enableIndex
+
+    /** Turns off the hash index and frees its maps. */
+    public void disableIndex() {
+        this.counts = null;
+        this.firstExact = null;
+        this.firstIgnoreCase = null;
+        this.positionsStale = false;
+    } // method disableIndex
+
+    /**
+     * Adds a string stored at the given position to the hash index, if it is on.
+     * Positions only ever grow as strings are appended, so an existing first
+     * occurrence is never replaced.
+     */
+    private void addToIndex(String string, int position) {
+        if (this.counts != null && string != null) {
+            this.counts.merge(string, 1, Integer::sum);
+            this.firstExact.putIfAbsent(string, position);
+            this.firstIgnoreCase.putIfAbsent(string.toLowerCase(), position);
+        }
+    } // method addToIndex
+
+    /** Removes a string that was stored at the given position from the hash index, if it is on. */
+    private void removeFromIndex(String string, int position) {
+        if (this.counts != null && string != null) {
+            int count = this.counts.get(string);
+            if (count == 1) {
+                this.counts.remove(string);
+            } else {
+                this.counts.put(string, count - 1);
+            }
+            if (position == this.occupancy) {
+                // The last string was removed: nothing moved, so only entries pointing at it go
+                this.firstExact.remove(string, position);
+                this.firstIgnoreCase.remove(string.toLowerCase(), position);
+            } else {
+                this.positionsStale = true;
+            }
+        }
+    } // method removeFromIndex
+
+    /** Rebuilds the first-occurrence positions after removals shifted the strings. */
+    private void rebuildPositions() {
+        this.firstExact.clear();
+        this.firstIgnoreCase.clear();
+        for (int i = 0; i < this.occupancy; i++) {
+            if (this.foundation[i] != null) {
+                this.firstExact.putIfAbsent(this.foundation[i], i);
+                this.firstIgnoreCase.putIfAbsent(this.foundation[i].toLowerCase(), i);
+            }
+        }
+        this.positionsStale = false;
+    } // method rebuildPositions
+
     /**
      * The method will print the format of how the dynamic array will look like
      * The design output is made from personal preference
@@ -201,45 +391,54 @@ public class DynamicArray {
      * As a result, The "," is not present before the closing bracket "]"
      * The format is returned at the end of the method
      * 
+     * The text is built by writeTo in a StringBuilder, which grows in place, instead of
+     * by adding Strings together, which copies everything built so far for every element.
      * 
      * @return The format of the printing style of the dynamic array
      */
     public String toString() {
-        // Declaring and intiating a variable to create the format of the array
-        // "[" is the opening bracket to the array
-        String format = "[";
-        // If the array is empty or null, only the brackets will be printed
-        if (this.foundation.length == 0 || this.foundation == null) {
+        // Guess the length from the separators and a few characters per element, so the builder rarely grows
+        StringBuilder format = new StringBuilder(8 * this.foundation.length + 4);
+        try {
+            this.writeTo(format);
+        } catch (IOException e) {
+            // A StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
+        }
+        // The format is returned and will be used for printing the dynamic array
+        return format.toString();
+    } // method toString
+
+    /**
+     * Writes the same text as toString to any Appendable (a Writer, a StringBuilder,
+     * System.out, ...) one element at a time, so a large array can be dumped to a file
+     * without building the whole text in memory first. Takes time linear in the
+     * length of the text.
+     * 
+     * @param out Where to write the text
+     * @throws IOException if out fails to write
+     */
+    public void writeTo(Appendable out) throws IOException {
+        // If the array is empty, only the brackets will be printed
+        if (this.foundation.length == 0) {
             // Standard form for the array which is [ ]
-            format = "[ ]";
+            out.append("[ ]");
+            return;
         }
-        // Check if foundation is not null
-        if (this.foundation != null) {
-            // For loop to transverse the foundation array
-            for (int i = 0; i < this.foundation.length;i++) {
-                // Check if the current element is not null to print the element present at the position i
-                if (this.foundation[i] != null) {
-                // The format adds each element of the corresponding index, i
-                format += this.foundation[i];
-                // Else if statement for when the above condition is not satiafied
-                } else {
-                // The format will print the string "null" to demonstrate the presence of a null element/absence of an element
-                format += "null"; 
-                }
-                // Add a comma after each element except for the last one to maintain a neat structure
-                if (i < this.foundation.length - 1) {
-                format += " , ";
-                } 
-                // Condition when after the last element is reached, the closing bracket is added
-                if (i == foundation.length-1) {
-                // The format is finished with a closing bracket "]"
-                format += "]";
-                }
+        // "[" is the opening bracket to the array
+        out.append('[');
+        // For loop to transverse the foundation array
+        for (int i = 0; i < this.foundation.length; i++) {
+            // Empty places are printed as "null" to demonstrate the absence of an element
+            out.append(this.foundation[i] != null ? this.foundation[i] : "null");
+            // Add a comma after each element except for the last one to maintain a neat structure
+            if (i < this.foundation.length - 1) {
+                out.append(" , ");
             }
-        }   
-        // The format is returned and will be used for printing the dynamic array
-        return format;
         }
+        // The format is finished with a closing bracket "]"
+        out.append(']');
+    } // method writeTo
 
         /**
          * The goal is to obtain and return the index of the String used as parameter in the array on one or more instances
@@ -259,6 +458,30 @@ public class DynamicArray {
          * @return The index of the string parameter that is present in the array on one or more occurences(The first occurence is returned)
          */
         public int index(String string) {
+            return this.index(string, true);
+        }
+
+        /**
+         * Same as index(string), with a choice between ignoring case (as index does) and
+         * matching the string exactly (as contains does).
+         * With the hash index on, the answer comes from the matching map instead of a scan.
+         * 
+         * @param string The string to look for
+         * @param ignoreCase true to compare strings without regard to case
+         * @return The index of the first occurrence of the string, or -1 if it is not present
+         */
+        public int index(String string, boolean ignoreCase) {
+        // With the hash index on, look up the first occurrence directly
+        if (this.counts != null) {
+            if (string == null) {
+                return -1;
+            }
+            if (this.positionsStale) {
+                this.rebuildPositions();
+            }
+            Integer position = ignoreCase ? this.firstIgnoreCase.get(string.toLowerCase()) : this.firstExact.get(string);
+            return (position == null) ? -1 : position;
+        }
         // Declaring and initializing an integer variable for the index
         // The variable is set to -1 to show that the index is yet to be found
         int index = -1; 
@@ -267,13 +490,16 @@ public class DynamicArray {
         // An if statement to check when the string parameter is not null and array is not null
         // If ever the string parameter is null or the foundation is null, -1 is returned at the end 
         if (string != null && this.foundation != null) {
+            // The parameter is turned to lower case once, rather than once per element
+            String target = ignoreCase ? string.toLowerCase() : string;
             // Using a while loop to check each element within the number of elements present in the array
             // Keeping the index to -1 so that the loop exited when the first occurence of the string parameter is obtained
             // It is useful since if the array is empty, the loop will not run, not needing to find any index
             while (i < this.occupancy && index == -1) {
                 // Check if the current element is not null and matches the string parameter
                 // The parameter and element is turned to lower case to eliminate case sensitivity
-                if (this.foundation[i] != null && this.foundation[i].toLowerCase().equals(string.toLowerCase())) {
+                if (this.foundation[i] != null
+                        && (ignoreCase ? this.foundation[i].toLowerCase() : this.foundation[i]).equals(target)) {
                     // The index variable now becomes that value of i where the condition is satisfied
                     // The loop will be exited  
                     index = i; 
@@ -289,9 +515,8 @@ public class DynamicArray {
     
         /**
          * The target is to calculate the percentage of values which are not null in an array
-         * A counter is created to count those elements and is initialized to zero
-         * A for loop is run to transverse the array
-         * If the element present is not a null value, the counter is incremented by 1
+         * The non-null elements are counted by insert and remove as they happen, so the
+         * percentage is obtained in O(1) without traversing the array
          * A variable of type double is used to obtain the percentage of the non-null elements
          * The number of non-elements is taken on top of the total elements in the array as a ratio
          * The percentage is calculated in full numbers by multiplying by 100
@@ -307,24 +532,16 @@ public class DynamicArray {
          * @return The final percentage of the non-null elements is returned(rounded off to 3 decimal places)
          */
         public double usage() {
-            // Declare and initialize an integer variable that will count the non-null values
-            int nonNullCount = 0;
             // Variable to calculate percentage of non-null elements in array
             double nonNullPercentage = 0.00;
             // Ensure there are elements in the array 
-            if (this.occupancy > 0 && this.foundation != null) {
-                // For loop used in counting non-null elements when traversing the array
-                for (int i = 0; i < this.foundation.length; i++) {
-                    // If the element in the array is not a null element
-                    if (this.foundation[i] != null) {
-                    // The variable is incremented by 1.
-                    nonNullCount++;
-                    }
-                }
+            if (this.nonNullCount > 0) {
                 /* Calculate presence of non-null element present in the array 
-                as a percentage of the total number of elements present
+                as a percentage of the total number of elements present.
+                The non-null elements are counted as they are inserted and removed,
+                so there is no need to traverse the array here.
                 */
-                nonNullPercentage = ((double)nonNullCount / this.foundation.length) * 100.0;
+                nonNullPercentage = ((double)this.nonNullCount / this.foundation.length) * 100.0;
                 // Rounding the full percentage to 2 decimal places using Math.round 
                 nonNullPercentage = Math.round(nonNullPercentage * 100.0) / 100.0;
                 // Returning the obtained percentage set to 2 decimal places
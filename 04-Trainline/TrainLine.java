@@ -1,4 +1,33 @@
-public class TrainLine {
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A train line: a doubly linked list of stations from head to tail. Each station
+ * points to the next and to the previous one, so the line can be walked
+ * southbound (head to tail) and northbound (tail to head) over the same
+ * stations; southbound() and northbound() give both directions to a for-each
+ * loop.
+ *
+ * Next to the links, the line keeps an index that every change updates, so that
+ * lookups don't have to walk the list:
+ * 1. stations, an ArrayList holding the station at each position, so getStation
+ *    is O(1) and insert and remove find their place without walking from head.
+ *    Inserting or removing in the middle still shifts the rest of the ArrayList,
+ *    which is O(n), although it is a single fast array copy.
+ * 2. counts, the number of stations with each name, case-folded, so contains is
+ *    a single hash lookup: O(1) whatever the changes.
+ * 3. firstIndex, the position of the first station with each case-folded name,
+ *    for indexOf. Inserting or removing a station in the middle shifts the
+ *    stations after it, so instead of fixing every entry the map is marked
+ *    stale and rebuilt in one O(n) pass by the next indexOf, as DynamicArray
+ *    does. indexOf is O(1) while stations are only added at the end; a loop
+ *    that alternates mid-line changes with indexOf is O(n) per call.
+ */
+public class TrainLine implements Iterable<TrainStation> {
 
     /** The name of the trainline */
     private String name;
@@ -9,6 +38,15 @@ public class TrainLine {
     /** Keeps a running tally of train stations in the trainline */
     private int numberOfStations;
 
+    /** Positional index: the station at each position, from head (0) to tail */
+    private ArrayList<TrainStation> stations;
+    /** Name index: how many stations have each case-folded name */
+    private HashMap<String, Integer> counts;
+    /** Name index: position of the first station with each case-folded name */
+    private HashMap<String, Integer> firstIndex;
+    /** True when stations moved since firstIndex was last brought up to date */
+    private boolean positionsStale;
+
     /**  Declaring the strings and symbols for the toString() method */
     private final String RIGHT_ARROW = " --> ";
     private final String LEFT_ARROW = " <-- ";
@@ -17,17 +55,30 @@ public class TrainLine {
     private final String NULL_STATION = "null";
 
 
-    /** Full constructor */
+    /** Full constructor. Every station linked after head becomes part of the line. */
     public TrainLine(String name, TrainStation head) {
         this.name = name;
         this.head = head;
         this.numberOfStations = 0;
-        if (this.head != null) {
-            // If head is not null, there is one station in the line
-            this.numberOfStations = 1;
-        }
+        this.stations = new ArrayList<TrainStation>();
+        this.counts = new HashMap<String, Integer>();
+        this.firstIndex = new HashMap<String, Integer>();
+        this.positionsStale = false;
         // At initialization head and tail point to the same station even if null
-        this.tail = null;
+        this.tail = head;
+        if (head != null) {
+            // The line starts at head, whatever was linked before it
+            head.setPrevious(null);
+        }
+        // Index the stations already linked to head, and find the real tail
+        TrainStation cursor = head;
+        while (cursor != null) {
+            this.stations.add(cursor);
+            this.addToIndex(cursor.getName(), this.numberOfStations);
+            this.numberOfStations++;
+            this.tail = cursor;
+            cursor = cursor.getNext();
+        }
     } // full constructor
 
     /** Basic constructor */
@@ -52,117 +103,135 @@ public class TrainLine {
         }
         // The new station becomes the tail station of the line
         this.tail = newStation;
+        // Index it at the last position
+        this.stations.add(newStation);
+        this.addToIndex(name, this.numberOfStations);
         // Update station count
         this.numberOfStations++;
     } // method add
 
+    /**
+     * Returns the station at the given position, 0 being the head, straight from
+     * the positional index.
+     *
+     * @param index Position of the station
+     * @return The station at that position, or null if the index is invalid
+     */
+    public TrainStation getStation(int index) {
+        return (index >= 0 && index < this.numberOfStations) ? this.stations.get(index) : null;
+    } // method getStation
+
     /** Returns the number of stations in the line >= 0 */
     public int getNumberOfStations() {
         return numberOfStations;
     } // method getNumberOfStations
 
-     /**
-      * The goal is to check whether the name in the parameter matches that of a station in the train line
-      * A train station for the current station reached while traversing the train line is created.
-      * The while loop runs while the current station exists and until the station name in the parameter is obtained
-      * The next station is obtained if the current station name does not match the one from the parameter.
-      * In the end, the condition will be returned depending on if the parameters matches the name of a station in the train line or not 
-      * It will either be true or false
-      *
-      * @param string Name of station to be compared with
-      * @return whether the parameter representing the station name is present in the trainline(True/False)
-      */
-      
-      public boolean contains(String name) {
-        // Create a train station that represents the current station
-        // Label it as the head since we are starting from there
-        TrainStation cursor = this.head;
-        // The loop runs as long as the station exists and until the station name in the parameter is obtained
-        while (cursor != null && !cursor.getName().equalsIgnoreCase(name)) {
-            // The next station is obtained 
-            cursor = cursor.getNext();
-    }
-        // Will return true if the station in the parameter is obtained
-        return cursor != null;
+    /**
+     * The goal is to check whether the name in the parameter matches that of a station in the train line
+     * The case-folded name is looked up in the counts map, which has an entry for every
+     * name in the line, so no station has to be visited
+     *
+     * @param name Name of station to be compared with
+     * @return whether the parameter representing the station name is present in the trainline(True/False)
+     */
+    public boolean contains(String name) {
+        return name != null && this.counts.containsKey(fold(name));
     }
-    
+
     /**
      * The goal is to return the index of the station name in the parameter present in the train line
-     * Create an integer variable to store the index of each station
-     * Create a train station for the current station reached while traversing the train line
-     * The while loop runs while the current station exists and until the station name in the parameter is obtained
-     * The next station is obtained, and the corresponding index is incremented accordingly.
-     * The above is done while the station name is not the one from the parameter.
-     * The index of the station is returned if obtained
+     * The case-folded name is looked up in the firstIndex map, after rebuilding it if
+     * stations moved since the last lookup (a pass over the whole line)
      * Else, -1 is returned if the station name in the parameter is not in the train line
-     * 
+     *
      * @param name name of the station whose index will be retrieved
      * @return index of the station name in the parameter else -1 if not obtained
      */
-
     public int indexOf(String name) {
-        // Index of station to be returned is initialized to 0(from the first station)
-        int index = 0;
-        // The current station is labelled as the head at the start
-        TrainStation cursor = this.head;
-        /* The loop runs as long as the station exists and 
-        until the station name in the parameter matches that of one in the train line
-        */
-        while (cursor != null && !cursor.getName().equalsIgnoreCase(name)) {
-            // The next station is obtained 
-            cursor = cursor.getNext();
-            // Index is incremented and becomes index of the next station
-            index++;
+        if (name == null) {
+            return -1;
+        }
+        if (this.positionsStale) {
+            this.rebuildPositions();
         }
-        // Index of station is returned if obtained or else -1 is returned
-        return cursor != null ? index : -1;
+        Integer index = this.firstIndex.get(fold(name));
+        return (index != null) ? index : -1;
     }
 
     /**
-     * 
-     * The goal is to return the stations in the train line in reverse order
-     * A string variable is created to store the stations obtained in reverse
-     * A train station for the current station reached is created
-     * A while loop is run as long as the current station exists
-     * The reverse string will store the name of the current station
-     * Afterwards, the next station is printed with the previous station stored in variable reverse on the following line.
-     * The loop runs until the end, and the stations will be printed in reverse order
-     * 
-     * Example of the process for 2 stations:
-     * If the 2 stations are Howard and Jarvis, the reverse process will be done as follows:
-     * reverse = ""
-     * reverse = cursor + \n + reverse
-     * reverse = Howard + \n + ""
-     * Howard
-     * ---------(This represent "")
-     *
-     * To get Jarvis:
-     * reverse = cursor + \n + reverse
-     * reverse = Jarvis + \n + (Howard + \n + "")
-     * reverse stores the previous station, Howard 
-     * Jarvis
-     * Howard 
-     * ---------(This represent "")
+     * The goal is to return the stations in the train line in reverse order, one per line
+     * The line is walked from the tail through the previous pointers, and each name is
+     * appended to a StringBuilder, so the time is linear in the number of characters
+     * (building the String by putting each name in front of the previous result
+     * would copy all the names again for every station)
      * 
      * @return The stations in reverse order
      */
-
     public String reverseList() {
-        // Create string variable that will store the reverse order of the stations
-        String reverse = "";
-        // Label it as the head since we are starting from there
-        TrainStation cursor = this.head;
-        // The loop runs as long there is an existing current station
-        while (cursor != null) {
-            // The reverse string will store the current stations in reverse  
-            // The next station is printed and the reverse string will print the stored previous station on the next line
-            reverse = cursor.getName() + "\n" + reverse;
-            // The next station is obtained
-            cursor = cursor.getNext();
+        StringBuilder reverse = new StringBuilder();
+        this.writeReverse(reverse);
+        return reverse.toString();
+    }
+
+    /**
+     * Writes the stations in reverse order, one per line, straight to the given
+     * output, without building any String first
+     *
+     * @param out Where to write the names, for example a StringBuilder or a Writer
+     * @throws UncheckedIOException if out is a Writer that fails
+     */
+    public void writeReverse(Appendable out) {
+        try {
+            // Label it as the tail since we are starting from there
+            TrainStation cursor = this.tail;
+            while (cursor != null) {
+                out.append(cursor.getName()).append('\n');
+                // The previous station is obtained
+                cursor = cursor.getPrevious();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        // The stations are returned in reverse
-        return reverse;
     }
+
+    /** Returns an iterator over the stations from head to tail */
+    public Iterator<TrainStation> iterator() {
+        return new StationIterator(this.head, true);
+    }
+
+    /** Returns the stations from head to tail, for a for-each loop */
+    public Iterable<TrainStation> southbound() {
+        return this;
+    }
+
+    /** Returns the stations from tail to head, for a for-each loop. They are the same station objects. */
+    public Iterable<TrainStation> northbound() {
+        return () -> new StationIterator(this.tail, false);
+    }
+
+    /** Walks the stations from a first one through next pointers (forward) or previous pointers */
+    private static class StationIterator implements Iterator<TrainStation> {
+        private TrainStation cursor;
+        private final boolean forward;
+
+        StationIterator(TrainStation first, boolean forward) {
+            this.cursor = first;
+            this.forward = forward;
+        }
+
+        public boolean hasNext() {
+            return this.cursor != null;
+        }
+
+        public TrainStation next() {
+            if (this.cursor == null) {
+                throw new NoSuchElementException();
+            }
+            TrainStation station = this.cursor;
+            this.cursor = this.forward ? station.getNext() : station.getPrevious();
+            return station;
+        }
+    } // class StationIterator
     
     /** Will return true if the number of stations is zero 
      * 
@@ -173,6 +242,13 @@ public class TrainLine {
         return this.numberOfStations == 0;
     }
 
+    /**
+     * Removes the station at the given position, counted from 1 for the head. The
+     * station before it is found in the positional index instead of by walking.
+     *
+     * @param position Position of the station to remove, from 1 to getNumberOfStations()
+     * @return The removed station, or null if the position is invalid
+     */
     public TrainStation remove(int position) {
         TrainStation removedStation = null;
         if (position >= 1 && position <= this.numberOfStations) {
@@ -181,63 +257,123 @@ public class TrainLine {
                 // Remove head
                 removedStation = this.head;
                 this.head = this.head.getNext();
-            } else {
-                // Find the station prior to the one to be removed
-                TrainStation cursor = this.head;
-                for (int i = 1; i < position-1; i++) {
-                    cursor = cursor.getNext();
+                if (this.head == null) {
+                    this.tail = null;
+                } else {
+                    this.head.setPrevious(null);
                 }
-                // cursor should be at the prior station
+            } else {
+                // The station prior to the one to be removed
+                TrainStation cursor = this.stations.get(position - 2);
                 if (cursor.getNext() == this.tail) {
                     this.tail = cursor;
                 }
                 removedStation = cursor.getNext();
                 cursor.setNext(cursor.getNext().getNext());
             }
+            this.stations.remove(position - 1);
             this.numberOfStations--;
+            this.removeFromIndex(removedStation.getName(), position - 1);
             removedStation.setNext(null);
+            removedStation.setPrevious(null);
         }
         return removedStation;
     }
 
     /**
      * The goal is to place a station at the given index in the parameter
-     * The new train station and current station are created
+     * The new train station is created
      * Special case for when the station is to be inserted at the head
-     * Then, the new station is inserted at the specified index
+     * Else, the station before the index is taken from the positional index and the
+     * new station is linked after it
      * The old station in that position is moved forward
-     * Number of stations is increased at the end
+     * The indexes and the number of stations are updated at the end
      * 
-     * @param String Name of station to be inserted in the train line
-     * @param int Position at which the station will be placed
+     * @param name Name of station to be inserted in the train line
+     * @param index Position at which the station will be placed, from 0; past the end means at the end
      */
     public void insert(String name, int index) {
+        // An index past the end adds the station at the end, a negative one at the head
+        index = Math.max(0, Math.min(index, this.numberOfStations));
         // Create the new station to be inserted in the train line
         TrainStation newStation = new TrainStation(name);
-        // Create the current station in the train line
         if (index == 0) {
+            // Special case: the new station becomes the head
             newStation.setNext(this.head);
             this.head = newStation;
-            this.numberOfStations++;
+        } else {
+            // The station before the index comes from the positional index
+            TrainStation previous = this.stations.get(index - 1);
+            // The new station is set with the old station in the specified index moved forward
+            newStation.setNext(previous.getNext());
+            previous.setNext(newStation);
         }
-        TrainStation current = this.head;
-        // Varibale to be incremented while traversing train line
-        int i = 0;
-        // While there is a station and the loop runs until the index in the parameter 
-        while (i < index && current != null) {
-            // The current station is set at the previous station of the current station at the parameter index
-            if (i == index - 1) {
-                // The new station is set with the old station in the specified index moved forward
-                newStation.setNext(current.getNext());
-                current.setNext(newStation);
-            }
-            current = current.getNext();
-            i++;
+        if (index == this.numberOfStations) {
+            // Inserted after the last station (or in an empty line)
+            this.tail = newStation;
+        }
+        this.stations.add(index, newStation);
+        if (index < this.numberOfStations) {
+            // The stations after it moved one place
+            this.positionsStale = true;
         }
+        this.addToIndex(name, index);
         this.numberOfStations++;
     }
-    
-   
+
+    /** Returns the key of a name in the name index: names that only differ in case share it */
+    private static String fold(String name) {
+        return name.toLowerCase();
+    } // method fold
+
+    /** Counts a station with the given name at the given position in the name index */
+    private void addToIndex(String name, int position) {
+        if (name != null) {
+            String key = fold(name);
+            this.counts.merge(key, 1, Integer::sum);
+            if (!this.positionsStale) {
+                // Only a new name, or one whose first station comes later, changes its entry
+                Integer first = this.firstIndex.get(key);
+                if (first == null || first > position) {
+                    this.firstIndex.put(key, position);
+                }
+            }
+        }
+    } // method addToIndex
+
+    /** Uncounts a station removed from the given position in the name index */
+    private void removeFromIndex(String name, int position) {
+        if (name != null) {
+            String key = fold(name);
+            int count = this.counts.get(key);
+            if (count == 1) {
+                this.counts.remove(key);
+            } else {
+                this.counts.put(key, count - 1);
+            }
+        }
+        if (position == this.numberOfStations) {
+            // The last station was removed: nothing moved, so only an entry pointing at it goes
+            if (name != null) {
+                this.firstIndex.remove(fold(name), position);
+            }
+        } else {
+            this.positionsStale = true;
+        }
+    } // method removeFromIndex
+
+    /** Rebuilds firstIndex from the positional index */
+    private void rebuildPositions() {
+        this.firstIndex.clear();
+        for (int i = 0; i < this.numberOfStations; i++) {
+            String name = this.stations.get(i).getName();
+            if (name != null) {
+                this.firstIndex.putIfAbsent(fold(name), i);
+            }
+        }
+        this.positionsStale = false;
+    } // method rebuildPositions
+
     /**
      * The method will print the reprensation of stations in the red line 
      * The method will print the stations in a snake like way with a maximum of 80 characters per line
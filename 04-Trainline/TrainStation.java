@@ -1,6 +1,7 @@
 /**
- * A simple class to simulate a train station. The object has only two fields:
- * the name of the station and a pointer to the next station object.
+ * A simple class to simulate a train station. The object has three fields: the
+ * name of the station and pointers to the next and to the previous station
+ * objects, so that a line can be walked in both directions.
  */
 public class TrainStation {
 
@@ -8,6 +9,8 @@ public class TrainStation {
     private String name;
     /** Pointer to the next station object */
     private TrainStation next;
+    /** Pointer to the previous station object, kept up to date by setNext */
+    private TrainStation previous;
 
     /**
      * Basic constructor. All stations are created without a station to point to;
@@ -19,15 +22,25 @@ public class TrainStation {
     public TrainStation(String name) {
         this.name = name;
         this.next = null;
+        this.previous = null;
     } // basic constructor
 
     /** 
-     * Setter for a station's next station.
+     * Setter for a station's next station. The next station's previous pointer is set
+     * to this station, so linking stations forward links them backward as well.
      */
     public void setNext(TrainStation next) {
         this.next = next;
+        if (next != null) {
+            next.previous = this;
+        }
     } // method setNext
 
+    /** Setter for a station's previous station, for unlinking the first station of a line */
+    public void setPrevious(TrainStation previous) {
+        this.previous = previous;
+    } // method setPrevious
+
     public String getName() {
         return this.name;
     }
@@ -42,4 +55,14 @@ public class TrainStation {
         return this.next;
     }
 
+    /** Predicate accessor */
+    public boolean hasPrevious() {
+        return this.previous != null;
+    }
+
+    /** Plain accessor (getter) for previous */
+    public TrainStation getPrevious() {
+        return this.previous;
+    }
+
 } // class TrainStation
@@ -0,0 +1,253 @@
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue of elements that threads can wait on: put waits while the
+ * queue is full and take waits while it is empty, so neither side has to
+ * busy-spin on add or remove. The elements are kept in an MpmcFastQ, so any
+ * number of producers and consumers can use it at the same time.
+ *
+ * A thread that has to wait goes through three stages, which can be tuned in
+ * the constructor:
+ * 1. Spin: retry right away a number of times, telling the processor with
+ *    Thread.onSpinWait that it is in a wait loop. This is the cheapest wait
+ *    when the other side is about to act on another core.
+ * 2. Yield: retry a number of times after Thread.yield, letting other threads
+ *    (or other virtual threads on the same carrier) run first.
+ * 3. Park: put itself on a list of waiting threads and park with LockSupport
+ *    until a thread on the other side unparks it. The thread joins the list
+ *    before it checks the queue one last time, and the other side reads the
+ *    list after it changes the queue, with a full fence on both sides. So
+ *    either the waiter sees the change, or the other side sees the waiter and
+ *    unparks it: a wake-up is never missed.
+ * No synchronized block or monitor wait is used anywhere: a virtual thread that
+ * parks with LockSupport is unmounted and frees its carrier thread, whereas one
+ * blocked inside synchronized would keep the carrier pinned.
+ *
+ * Null elements are not allowed, since remove and poll use null for "empty".
+ *
+ * @param <E> The type of the elements
+ */
+public class BlockingFastQ<E> {
+
+    private static final int DEFAULT_SIZE = 4;
+    private static final int DEFAULT_SPINS = 100;
+    private static final int DEFAULT_YIELDS = 10;
+
+    private final MpmcFastQ<E> queue;
+    /** Number of retries with Thread.onSpinWait before yielding */
+    private final int spins;
+    /** Number of retries with Thread.yield before parking */
+    private final int yields;
+    /** Producers parked until there is room */
+    private final ConcurrentLinkedQueue<Thread> producersWaiting = new ConcurrentLinkedQueue<>();
+    /** Consumers parked until there is an element */
+    private final ConcurrentLinkedQueue<Thread> consumersWaiting = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Full constructor
+     *
+     * @param size The capacity, rounded up to a power of two as in MpmcFastQ
+     * @param spins How many times a waiting thread retries while spinning
+     * @param yields How many more times it retries after yielding, before it parks
+     */
+    public BlockingFastQ(int size, int spins, int yields) {
+        this.queue = new MpmcFastQ<E>(size);
+        this.spins = Math.max(0, spins);
+        this.yields = Math.max(0, yields);
+    } // full constructor
+
+    /** Constructor with the default wait strategy */
+    public BlockingFastQ(int size) {
+        this(size, DEFAULT_SPINS, DEFAULT_YIELDS);
+    } // size constructor
+
+    /** Default constructor */
+    public BlockingFastQ() {
+        this(DEFAULT_SIZE);
+    } // default constructor
+
+    /**
+     * Adds an element at the back of the queue without waiting
+     *
+     * @param element An element to be added
+     * @return whether the element was added; false if the queue is full
+     */
+    public boolean add(E element) {
+        if (element == null) {
+            throw new NullPointerException("BlockingFastQ does not accept null");
+        }
+        boolean success = this.queue.add(element);
+        if (success) {
+            signal(this.consumersWaiting);
+        }
+        return success;
+    }
+
+    /**
+     * Removes the element at the front of the queue without waiting
+     *
+     * @return The element removed from the front, or null if the queue is empty
+     */
+    public E remove() {
+        E removed = this.queue.remove();
+        if (removed != null) {
+            signal(this.producersWaiting);
+        }
+        return removed;
+    }
+
+    /**
+     * Adds an element at the back of the queue, waiting as long as it takes for room
+     *
+     * @param element An element to be added
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void put(E element) throws InterruptedException {
+        this.awaitAdd(element, false, 0L);
+    }
+
+    /**
+     * Adds an element at the back of the queue, waiting at most the given time for room
+     *
+     * @param element An element to be added
+     * @param timeout How long to wait at most
+     * @param unit The unit of timeout
+     * @return whether the element was added; false if the queue stayed full
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+        return this.awaitAdd(element, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Removes the element at the front of the queue, waiting as long as it takes for one
+     *
+     * @return The element removed from the front
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public E take() throws InterruptedException {
+        return this.awaitRemove(false, 0L);
+    }
+
+    /**
+     * Removes the element at the front of the queue, waiting at most the given time for one
+     *
+     * @param timeout How long to wait at most
+     * @param unit The unit of timeout
+     * @return The element removed from the front, or null if the queue stayed empty
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.awaitRemove(true, unit.toNanos(timeout));
+    }
+
+    /** Returns the number of elements in the queue; only a snapshot while other threads are busy */
+    public int size() {
+        return this.queue.size();
+    }
+
+    /** Retries add through the spin, yield and park stages until it succeeds or time runs out */
+    private boolean awaitAdd(E element, boolean timed, long nanos) throws InterruptedException {
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        for (int attempt = 0; ; attempt++) {
+            if (this.add(element)) {
+                return true;
+            }
+            long remaining = timed ? deadline - System.nanoTime() : 0L;
+            if (timed && remaining <= 0) {
+                return false;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (attempt < this.spins) {
+                Thread.onSpinWait();
+            } else if (attempt < this.spins + this.yields) {
+                Thread.yield();
+            } else {
+                Thread current = Thread.currentThread();
+                this.producersWaiting.add(current);
+                VarHandle.fullFence();
+                // Last check now that consumers can see us on the list
+                if (this.add(element)) {
+                    leave(this.producersWaiting, current);
+                    return true;
+                }
+                this.park(timed, remaining);
+                this.producersWaiting.remove(current);
+            }
+        }
+    }
+
+    /** Retries remove through the spin, yield and park stages until it succeeds or time runs out */
+    private E awaitRemove(boolean timed, long nanos) throws InterruptedException {
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        for (int attempt = 0; ; attempt++) {
+            E removed = this.remove();
+            if (removed != null) {
+                return removed;
+            }
+            long remaining = timed ? deadline - System.nanoTime() : 0L;
+            if (timed && remaining <= 0) {
+                return null;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (attempt < this.spins) {
+                Thread.onSpinWait();
+            } else if (attempt < this.spins + this.yields) {
+                Thread.yield();
+            } else {
+                Thread current = Thread.currentThread();
+                this.consumersWaiting.add(current);
+                VarHandle.fullFence();
+                // Last check now that producers can see us on the list
+                removed = this.remove();
+                if (removed != null) {
+                    leave(this.consumersWaiting, current);
+                    return removed;
+                }
+                this.park(timed, remaining);
+                this.consumersWaiting.remove(current);
+            }
+        }
+    }
+
+    /**
+     * Takes a thread that succeeded without parking off the list of waiters
+     * If the other side already took it off to unpark it, that wake-up is not needed
+     * any more and is handed to the next waiter, so that it is never lost.
+     * (A thread that did park always retries once after waking up, so it uses its wake-up.)
+     */
+    private static void leave(ConcurrentLinkedQueue<Thread> waiters, Thread current) {
+        if (!waiters.remove(current)) {
+            signal(waiters);
+        }
+    }
+
+    /** Parks the current thread until it is unparked, interrupted or the time runs out */
+    private void park(boolean timed, long nanos) {
+        if (timed) {
+            LockSupport.parkNanos(this, nanos);
+        } else {
+            LockSupport.park(this);
+        }
+    }
+
+    /** Unparks the first thread waiting on the list, if any */
+    private static void signal(ConcurrentLinkedQueue<Thread> waiters) {
+        // Pairs with the fence a waiter makes after joining the list: the change to the queue is visible before the list is read
+        VarHandle.fullFence();
+        if (!waiters.isEmpty()) {
+            Thread waiter = waiters.poll();
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+} // class BlockingFastQ
@@ -0,0 +1,360 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * A FastQ of strings kept in a memory-mapped file, so that its contents survive
+ * a restart (or a crash) of the process.
+ *
+ * The file starts with a header page, followed by the circular buffer. The
+ * strings sit in the buffer as records, each one the length of the string in
+ * bytes, a checksum and its UTF-8 bytes, padded to a multiple of 4 bytes:
+ *
+ * [ header | ... | 3 crc c a t . | 5 crc h o r s e ... | ... ]
+ *                 ^ front                              ^ back
+ *
+ * As in SpscFastQ, front and back are counters that only grow: they count the
+ * bytes removed and added so far, and counter c lives at byte c % capacity of
+ * the buffer. A record never runs past the end of the buffer; if it doesn't fit
+ * in the bytes left before the end, a wrap marker is written there and the
+ * record goes to the start of the buffer instead.
+ *
+ * Every add and remove writes its record (or reads it) directly in the mapped
+ * pages and then stores front and back in the header, so throughput is close to
+ * that of an in-memory queue. The operating system writes the pages to disk on
+ * its own; sync() forces them to disk, and the queue can do it by itself after
+ * every syncEvery changes:
+ * 1. syncEvery = 1 syncs every add and remove: nothing is ever lost, at the cost
+ *    of one fsync per operation.
+ * 2. syncEvery = n syncs every n changes: a power failure loses at most the
+ *    last n changes.
+ * 3. syncEvery = 0 only syncs on sync() and close() (and in the one case of
+ *    add described below). A crash of the process
+ *    still loses nothing, since the pages belong to the operating system.
+ * After a power failure, strings removed since the last sync come back, so a
+ * consumer should be able to handle the same string twice. For that to work the
+ * bytes of those strings must still be there, so add never writes over bytes
+ * removed since the last sync: when a string only fits by doing so, add syncs
+ * first (whatever syncEvery is), which makes the removals final.
+ *
+ * Recovery on reopen cannot trust that the disk got the pages in the order they
+ * were written. So the header has two slots, written in turns, each with a
+ * sequence number and a checksum: the valid slot with the highest sequence wins.
+ * Then the records from front to back are read once, and the queue ends at the
+ * first one whose checksum does not match. The checksum of a record also covers
+ * its counter, so an old record left from an earlier lap around the buffer
+ * can't be mistaken for a new one.
+ */
+public class DurableFastQ implements Closeable {
+
+    /** Marks a file as a DurableFastQ file ("DFQ1") */
+    private static final int MAGIC = 0x44465131;
+
+    /** The header takes one page; the buffer starts after it */
+    private static final int HEADER_SIZE = 4096;
+    private static final int CAPACITY_POSITION = 4;
+    /** Each header slot: sequence, front, back (longs), then a checksum of those 24 bytes */
+    private static final int[] SLOT_POSITIONS = { 64, 128 };
+    private static final int SLOT_DATA_SIZE = 3 * Long.BYTES;
+
+    /** Bytes in front of the string in a record: its length and its checksum */
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    /** Length written where a record did not fit before the end of the buffer */
+    private static final int WRAP = -1;
+
+    private static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private final FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private final int syncEvery;
+    private final CRC32C crc = new CRC32C();
+    /** Holds the numbers that go into a checksum, so it can be computed from a plain array */
+    private final ByteBuffer scratch = ByteBuffer.allocate(SLOT_DATA_SIZE);
+
+    /** Number of bytes removed so far */
+    private long front;
+    /** Front as of the last sync, where recovery could start after a power failure: no add writes over it */
+    private long syncedFront;
+    /** Number of bytes added so far */
+    private long back;
+    /** Number of strings in the queue */
+    private int used;
+    /** Sequence number of the last header written */
+    private long sequence;
+    /** Number of changes since the last sync */
+    private int unsynced;
+
+    /** Opens the file; use open() to create a queue */
+    private DurableFastQ(FileChannel channel, int syncEvery) {
+        this.channel = channel;
+        this.syncEvery = Math.max(0, syncEvery);
+    } // full constructor
+
+    /**
+     * Opens the queue stored at the given path, creating it if the file does not
+     * exist yet, and recovers the strings it held.
+     *
+     * @param path The file of the queue
+     * @param capacity The size in bytes of the buffer of a new file, rounded up to a
+     *                 multiple of 4; an existing file keeps its own size
+     * @param syncEvery Number of changes after which the queue syncs by itself, or 0
+     * @return The opened queue
+     * @throws IOException if the file can't be opened or is not a DurableFastQ
+     */
+    public static DurableFastQ open(Path path, int capacity, int syncEvery) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        DurableFastQ queue = new DurableFastQ(channel, syncEvery);
+        try {
+            queue.load(capacity);
+        } catch (IOException | RuntimeException e) {
+            queue.close();
+            throw e;
+        }
+        return queue;
+    }
+
+    /** Opens the queue with a 1 MB buffer that only syncs on sync() and close() */
+    public static DurableFastQ open(Path path) throws IOException {
+        return open(path, DEFAULT_CAPACITY, 0);
+    }
+
+    /** Maps the file and recovers the queue, or writes a header for a new file */
+    private void load(int capacity) throws IOException {
+        boolean isNew = this.channel.size() == 0;
+        if (isNew) {
+            if (capacity < RECORD_HEADER_SIZE || capacity > Integer.MAX_VALUE - HEADER_SIZE - 3) {
+                throw new IllegalArgumentException("Invalid capacity: " + capacity);
+            }
+            this.capacity = (capacity + 3) & ~3;
+        } else {
+            // Check the magic number before mapping, since mapping would make a foreign file grow
+            ByteBuffer start = ByteBuffer.allocate(2 * Integer.BYTES);
+            this.channel.read(start, 0);
+            this.capacity = start.getInt(CAPACITY_POSITION);
+            if (start.getInt(0) != MAGIC || this.capacity <= 0
+                    || this.channel.size() != (long) HEADER_SIZE + this.capacity) {
+                throw new IOException("Not a DurableFastQ file");
+            }
+        }
+        this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, this.capacity);
+        if (isNew) {
+            this.header.putInt(0, MAGIC);
+            this.header.putInt(CAPACITY_POSITION, this.capacity);
+            this.writeHeader();
+        } else {
+            this.recover();
+        }
+        this.sync();
+    }
+
+    /**
+     * Reads front and back from the newest valid header slot, then walks the records
+     * between them to count the strings, stopping at the first damaged record
+     */
+    private void recover() throws IOException {
+        boolean found = false;
+        for (int slot : SLOT_POSITIONS) {
+            long sequence = this.header.getLong(slot);
+            long front = this.header.getLong(slot + Long.BYTES);
+            long back = this.header.getLong(slot + 2 * Long.BYTES);
+            if (this.slotChecksum(sequence, front, back) == this.header.getInt(slot + SLOT_DATA_SIZE)
+                    && (!found || sequence > this.sequence)) {
+                this.sequence = sequence;
+                this.front = front;
+                this.back = back;
+                found = true;
+            }
+        }
+        if (!found || this.front < 0 || this.front > this.back || this.back - this.front > this.capacity) {
+            throw new IOException("DurableFastQ header is damaged");
+        }
+        long position = this.front;
+        int count = 0;
+        while (position < this.back) {
+            long next = this.nextRecord(position);
+            if (next < 0) {
+                break;
+            }
+            position = next;
+            count++;
+        }
+        if (position != this.back) {
+            // The header got to disk before the last records did: drop them
+            this.back = position;
+            this.writeHeader();
+        }
+        this.used = count;
+    }
+
+    /**
+     * Checks the record at the given counter
+     *
+     * @return The counter just after the record, or -1 if the record is damaged
+     */
+    private long nextRecord(long position) {
+        int offset = (int) (position % this.capacity);
+        if (this.capacity - offset >= Integer.BYTES && this.buffer.getInt(offset) == WRAP) {
+            position += this.capacity - offset;
+            offset = 0;
+        }
+        if (this.capacity - offset < RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int length = this.buffer.getInt(offset);
+        if (length < 0 || length > this.capacity - offset - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        byte[] encoded = new byte[length];
+        this.buffer.get(offset + RECORD_HEADER_SIZE, encoded);
+        if (this.recordChecksum(position, encoded) != this.buffer.getInt(offset + Integer.BYTES)) {
+            return -1;
+        }
+        long next = position + recordSize(length);
+        return (next <= this.back) ? next : -1;
+    }
+
+    /** Returns the number of strings in the queue */
+    public int size() {
+        return this.used;
+    }
+
+    /**
+     * Adds a string at the back of the queue. If the string has to go over bytes
+     * removed since the last sync, the queue syncs first.
+     *
+     * @param string A string element to be added
+     * @return whether the string was added; false if there are not enough free bytes
+     */
+    public boolean add(String string) {
+        if (string == null) {
+            throw new NullPointerException("DurableFastQ does not accept null");
+        }
+        byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+        long size = recordSize(encoded.length);
+        int offset = (int) (this.back % this.capacity);
+        // Bytes skipped at the end of the buffer when the record doesn't fit there
+        int skip = (size > this.capacity - offset) ? this.capacity - offset : 0;
+        if (skip > 0 && this.used == 0) {
+            // Nothing to keep: start the next lap right away instead of counting the skipped bytes as used
+            this.back += skip;
+            this.front = this.back;
+            skip = 0;
+            offset = 0;
+        }
+        if (size > this.capacity || this.back + skip + size - this.front > this.capacity) {
+            return false;
+        }
+        if (this.back + skip + size - this.syncedFront > this.capacity) {
+            // The record would overwrite strings that come back after a power failure: make their removal final
+            this.sync();
+        }
+        if (skip > 0) {
+            this.buffer.putInt(offset, WRAP);
+            offset = 0;
+        }
+        this.buffer.put(offset + RECORD_HEADER_SIZE, encoded);
+        this.buffer.putInt(offset, encoded.length);
+        this.buffer.putInt(offset + Integer.BYTES, this.recordChecksum(this.back + skip, encoded));
+        this.back += skip + size;
+        this.used++;
+        this.changed();
+        return true;
+    }
+
+    /**
+     * Removes the string at the front of the queue
+     *
+     * @return The string removed from the front, or null if the queue is empty
+     */
+    public String remove() {
+        if (this.used == 0) {
+            return null;
+        }
+        int offset = (int) (this.front % this.capacity);
+        if (this.capacity - offset >= Integer.BYTES && this.buffer.getInt(offset) == WRAP) {
+            this.front += this.capacity - offset;
+            offset = 0;
+        }
+        byte[] encoded = new byte[this.buffer.getInt(offset)];
+        this.buffer.get(offset + RECORD_HEADER_SIZE, encoded);
+        this.front += recordSize(encoded.length);
+        this.used--;
+        this.changed();
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Forces the buffer and then the header to disk. The header is written once more
+     * first, so that both slots hold the current front and back: whichever slot
+     * recovery ends up reading, it starts from here.
+     */
+    public void sync() {
+        this.writeHeader();
+        this.buffer.force();
+        this.header.force();
+        this.unsynced = 0;
+        this.syncedFront = this.front;
+    }
+
+    /** Syncs and closes the file */
+    public void close() throws IOException {
+        try {
+            if (this.header != null) {
+                this.sync();
+            }
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /** Stores front and back in the header and syncs once syncEvery changes have been made */
+    private void changed() {
+        this.writeHeader();
+        if (this.syncEvery > 0 && ++this.unsynced >= this.syncEvery) {
+            this.sync();
+        }
+    }
+
+    /** Writes front and back to the older header slot, which becomes the newer one */
+    private void writeHeader() {
+        this.sequence++;
+        int slot = SLOT_POSITIONS[(int) (this.sequence & 1)];
+        this.header.putLong(slot, this.sequence);
+        this.header.putLong(slot + Long.BYTES, this.front);
+        this.header.putLong(slot + 2 * Long.BYTES, this.back);
+        this.header.putInt(slot + SLOT_DATA_SIZE, this.slotChecksum(this.sequence, this.front, this.back));
+    }
+
+    /** Returns the checksum of the sequence, front and back of a header slot */
+    private int slotChecksum(long sequence, long front, long back) {
+        this.scratch.putLong(0, sequence).putLong(Long.BYTES, front).putLong(2 * Long.BYTES, back);
+        this.crc.reset();
+        this.crc.update(this.scratch.array(), 0, SLOT_DATA_SIZE);
+        return (int) this.crc.getValue();
+    }
+
+    /** Returns the checksum of the counter, length and bytes of a record */
+    private int recordChecksum(long position, byte[] encoded) {
+        this.scratch.putLong(0, position).putInt(Long.BYTES, encoded.length);
+        this.crc.reset();
+        this.crc.update(this.scratch.array(), 0, Long.BYTES + Integer.BYTES);
+        this.crc.update(encoded);
+        return (int) this.crc.getValue();
+    }
+
+    /** Returns the bytes taken by a record for a string of the given length, padded to a multiple of 4 */
+    private static long recordSize(int length) {
+        return RECORD_HEADER_SIZE + (((long) length + 3) & ~3L);
+    }
+
+} // class DurableFastQ
@@ -0,0 +1,134 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+public class DurableFastQTest {
+   /** Size of the header page, where the buffer starts */
+   private static final int HEADER_SIZE = 4096;
+   /** Positions of the two header slots and the size of one */
+   private static final int[] SLOTS = { 64, 128 };
+   private static final int SLOT_SIZE = 28;
+
+   /** Returns a queue file path in a new temporary directory */
+   private Path newPath() throws IOException {
+      return Files.createTempDirectory("durable").resolve("queue.dat");
+   }
+
+   /** Reads count bytes of the file from the given position */
+   private byte[] read(Path path, long position, int count) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         ByteBuffer bytes = ByteBuffer.allocate(count);
+         channel.read(bytes, position);
+         return bytes.array();
+      }
+   }
+
+   /** Writes bytes into the file at the given position */
+   private void write(Path path, long position, byte[] bytes) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+         channel.write(ByteBuffer.wrap(bytes), position);
+      }
+   }
+
+   /** Overwrites the header slot with the highest sequence number, as a torn write would */
+   private void corruptNewestSlot(Path path) throws IOException {
+      byte[] header = read(path, 0, HEADER_SIZE);
+      ByteBuffer view = ByteBuffer.wrap(header);
+      int newest = (view.getLong(SLOTS[0]) > view.getLong(SLOTS[1])) ? SLOTS[0] : SLOTS[1];
+      write(path, newest, new byte[SLOT_SIZE]);
+   }
+
+   @Test
+   public void testReopen() throws IOException {
+      Path path = newPath();
+      try (DurableFastQ queue = DurableFastQ.open(path, 256, 0)) {
+         assertTrue(queue.add("A"));
+         assertTrue(queue.add("B"));
+         assertTrue(queue.add("C"));
+         assertEquals("A", queue.remove());
+      }
+      try (DurableFastQ queue = DurableFastQ.open(path, 256, 0)) {
+         assertEquals(2, queue.size());
+         assertEquals("B", queue.remove());
+         assertEquals("C", queue.remove());
+         assertNull(queue.remove());
+      }
+   }
+
+   @Test
+   public void testEmptyQueueTakesWholeCapacity() throws IOException {
+      Path path = newPath();
+      try (DurableFastQ queue = DurableFastQ.open(path, 64, 0)) {
+         // A 12-byte string takes a 20-byte record, so back ends up at offset 20
+         assertTrue(queue.add("abcdefghijkl"));
+         assertEquals("abcdefghijkl", queue.remove());
+         String large = "a".repeat(48);
+         assertTrue(queue.add(large));
+         assertEquals(1, queue.size());
+         assertEquals(large, queue.remove());
+      }
+      try (DurableFastQ queue = DurableFastQ.open(path, 64, 0)) {
+         assertEquals(0, queue.size());
+      }
+   }
+
+   @Test
+   public void testLostRecordAndHeaderSlot() throws IOException {
+      Path path = newPath();
+      // Records of 8-byte strings take 16 bytes: four of them fill the buffer
+      DurableFastQ queue = DurableFastQ.open(path, 64, 0);
+      assertTrue(queue.add("AAAAAAAA"));
+      assertTrue(queue.add("BBBBBBBB"));
+      assertTrue(queue.add("CCCCCCCC"));
+      queue.sync();
+      assertEquals("AAAAAAAA", queue.remove());
+      assertTrue(queue.add("DDDDDDDD"));
+      // Goes where A was, so the removal of A has to reach the disk first
+      assertTrue(queue.add("EEEEEEEE"));
+      // Power failure: the last header write is torn and the record of E is lost
+      corruptNewestSlot(path);
+      write(path, HEADER_SIZE, new byte[16]);
+      try (DurableFastQ recovered = DurableFastQ.open(path, 64, 0)) {
+         assertEquals(3, recovered.size());
+         assertEquals("BBBBBBBB", recovered.remove());
+         assertEquals("CCCCCCCC", recovered.remove());
+         assertEquals("DDDDDDDD", recovered.remove());
+         assertNull(recovered.remove());
+      }
+      queue.close();
+   }
+
+   @Test
+   public void testLostHeaderPage() throws IOException {
+      Path path = newPath();
+      DurableFastQ queue = DurableFastQ.open(path, 64, 0);
+      assertTrue(queue.add("AAAAAAAA"));
+      assertTrue(queue.add("BBBBBBBB"));
+      assertTrue(queue.add("CCCCCCCC"));
+      queue.sync();
+      byte[] synced = read(path, 0, HEADER_SIZE);
+      assertEquals("AAAAAAAA", queue.remove());
+      assertTrue(queue.add("DDDDDDDD"));
+      // Power failure: the header page is as it was at the sync and the record of D is lost
+      write(path, 0, synced);
+      write(path, HEADER_SIZE + 48, new byte[16]);
+      try (DurableFastQ recovered = DurableFastQ.open(path, 64, 0)) {
+         // A was removed after the sync, so it comes back
+         assertEquals(3, recovered.size());
+         assertEquals("AAAAAAAA", recovered.remove());
+         assertEquals("BBBBBBBB", recovered.remove());
+         assertEquals("CCCCCCCC", recovered.remove());
+      }
+      queue.close();
+   }
+
+}
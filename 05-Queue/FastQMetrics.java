@@ -0,0 +1,166 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters that show how a FastQ behaves under load: how many elements were
+ * added, removed and rejected, how full the queue ever got, and how long the
+ * elements waited between add and remove.
+ *
+ * The queue's own thread records, and any other thread may read at the same
+ * time through snapshot(). To keep recording cheap:
+ * 1. The counters are LongAdders, which spread their updates over several
+ *    cells instead of fighting over a single value, so a monitoring thread
+ *    reading them never slows the queue down much.
+ * 2. The high-water mark is a LongAccumulator taking the maximum, which only
+ *    writes when a new maximum is reached.
+ * 3. The latency histogram has one bucket per power of two of nanoseconds, so
+ *    finding the bucket is a single numberOfLeadingZeros instruction. Bucket i
+ *    counts the waits between 2^(i-1) and 2^i - 1 nanoseconds (bucket 0 counts
+ *    waits of 0). A FastQ is only used by one thread at a time, so a bucket is
+ *    bumped with a plain read and an opaque write instead of an atomic
+ *    increment: other threads still see the new value, without the cost of a
+ *    locked instruction.
+ * Reading the clock costs more than all of the above together, so the queue
+ * can be told to time only one element out of every few (see
+ * FastQ.enableMetrics(int)); the histogram then holds a sample of the waits.
+ */
+public class FastQMetrics {
+
+    /** One bucket for 0, then one per bit of a positive long */
+    static final int BUCKETS = 64;
+
+    private final LongAdder adds = new LongAdder();
+    private final LongAdder removes = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAccumulator highWaterMark = new LongAccumulator(Math::max, 0L);
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+
+    /** Records count elements added, after which the queue held used elements */
+    void recordAdds(int count, int used) {
+        this.adds.add(count);
+        this.highWaterMark.accumulate(used);
+    }
+
+    /** Records count elements that did not fit in the queue */
+    void recordRejections(int count) {
+        this.rejections.add(count);
+    }
+
+    /** Records count elements removed */
+    void recordRemoves(int count) {
+        this.removes.add(count);
+    }
+
+    /** Records an element that waited the given nanoseconds in the queue */
+    void recordLatency(long waitNanos) {
+        int bucket = bucket(waitNanos);
+        // Only the queue's thread writes, so no atomic increment is needed
+        this.latencies.setOpaque(bucket, this.latencies.getPlain(bucket) + 1);
+    }
+
+    /** Returns the histogram bucket for a wait: the number of bits needed to write it */
+    static int bucket(long waitNanos) {
+        return 64 - Long.numberOfLeadingZeros(Math.max(0L, waitNanos));
+    }
+
+    /**
+     * Returns a copy of the counters as they are now. Safe to call from any thread
+     * while the queue is in use; the values are read one after the other, so they
+     * may be a few operations apart from each other.
+     */
+    public Snapshot snapshot() {
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = this.latencies.get(i);
+        }
+        return new Snapshot(this.adds.sum(), this.removes.sum(), this.rejections.sum(),
+                this.highWaterMark.get(), histogram);
+    }
+
+    /** Sets every counter back to zero; call it from the queue's thread */
+    public void reset() {
+        this.adds.reset();
+        this.removes.reset();
+        this.rejections.reset();
+        this.highWaterMark.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            this.latencies.set(i, 0L);
+        }
+    }
+
+    /** The values of the counters at one moment */
+    public static class Snapshot {
+        private final long adds;
+        private final long removes;
+        private final long rejections;
+        private final long highWaterMark;
+        private final long[] histogram;
+
+        Snapshot(long adds, long removes, long rejections, long highWaterMark, long[] histogram) {
+            this.adds = adds;
+            this.removes = removes;
+            this.rejections = rejections;
+            this.highWaterMark = highWaterMark;
+            this.histogram = histogram;
+        }
+
+        /** Returns the number of elements added */
+        public long getAdds() {
+            return this.adds;
+        }
+
+        /** Returns the number of elements removed */
+        public long getRemoves() {
+            return this.removes;
+        }
+
+        /** Returns the number of elements that could not be added because the queue was full */
+        public long getRejections() {
+            return this.rejections;
+        }
+
+        /** Returns the largest number of elements the queue held at once */
+        public long getHighWaterMark() {
+            return this.highWaterMark;
+        }
+
+        /** Returns a copy of the latency histogram, with the buckets described above */
+        public long[] getHistogram() {
+            return this.histogram.clone();
+        }
+
+        /**
+         * Returns an upper bound, in nanoseconds, for the wait of the given fraction of
+         * the removed elements. For example percentile(0.99) is a time that 99% of the
+         * elements waited less than. The bound is the end of a power-of-two bucket, so
+         * it is at most twice the real value.
+         *
+         * @param fraction A number between 0 and 1
+         * @return The upper bound, or 0 if nothing was removed
+         */
+        public long percentile(double fraction) {
+            long total = 0;
+            for (long count : this.histogram) {
+                total += count;
+            }
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += this.histogram[i];
+                if (seen >= rank && seen > 0) {
+                    return (i == 0) ? 0L : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                }
+            }
+            return 0L;
+        }
+
+        @Override
+        public String toString() {
+            return "adds=" + this.adds + " removes=" + this.removes + " rejections=" + this.rejections
+                    + " highWaterMark=" + this.highWaterMark + " p50<=" + this.percentile(0.5) + "ns"
+                    + " p99<=" + this.percentile(0.99) + "ns";
+        }
+    } // class Snapshot
+
+} // class FastQMetrics
@@ -1,24 +1,73 @@
-public class FastQ {
-    private String[] array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A bounded circular queue of elements of type E.
+ *
+ * The elements are kept in an Object[] (Java can't create an E[]) and cast back
+ * to E when they come out, just like ArrayList does. Besides add and remove, the
+ * batch methods offer and poll move many elements with at most two
+ * System.arraycopy calls and without creating any objects.
+ *
+ * Metrics can be turned on with enableMetrics(). The queue then remembers when
+ * each element was added, in a long[] parallel to the array, and reports to a
+ * FastQMetrics that other threads can read while the queue is in use.
+ *
+ * @param <E> The type of the elements
+ */
+public class FastQ<E> {
+    private Object[] array;
     private int size;
     private int used;
     private int front;
     private int back;
+    /** When true, add makes the array larger instead of failing when it is full */
+    private boolean growable;
+    /** array.length - 1 when the length is a power of two, so wrapping is a bit mask; -1 otherwise */
+    private int mask;
+    /** Counters for adds, removes, rejections and latencies (null when metrics are off) */
+    private FastQMetrics metrics;
+    /** System.nanoTime() at which each element was added, parallel to array (null when metrics are off) */
+    private long[] addedAt;
+    /** Only one element out of sampleEvery added one at a time is timed */
+    private int sampleEvery;
+    /** Number of adds left until the next timed one */
+    private int untilSample;
 
     private static final int DEFAULT_SIZE = 4;
+    /** Value in addedAt for an element whose wait is not timed */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
 
-    /** Full constructor */
-    public FastQ(int size) {
+    /**
+     * Full constructor. A growable queue never rejects an add: when the array is
+     * full it is replaced by one twice as large. Its size is rounded up to a power
+     * of two, so that moving front and back around the circle is a bit mask
+     * instead of a division.
+     */
+    public FastQ(int size, boolean growable) {
         if (size <1){
             size = DEFAULT_SIZE;
         }
+        if (growable) {
+            // Round up to the next power of two
+            size = (size == 1) ? 1 : Integer.highestOneBit(size - 1) << 1;
+        }
         this.size = size;
-        this.array = new String[this.size];
+        this.array = new Object[this.size];
         this.used = 0;
         this.front = 0;
         this.back = 0;
+        this.growable = growable;
+        this.mask = (Integer.bitCount(size) == 1) ? size - 1 : -1;
     } // full constructor
 
+    /** Fixed-size constructor: add fails once the queue holds size elements */
+    public FastQ(int size) {
+        this(size, false);
+    } // fixed-size constructor
+
     /** Default constructor */
     public FastQ() {
         this(DEFAULT_SIZE);
@@ -31,17 +80,30 @@ public class FastQ {
      * That first element is set to null
      * The new index for front is updated to the original next element 
      * The number of element in the arrays is reduced as one element was removed
+     * An empty queue is left unchanged and null is returned
      * 
-     * @return The element removed from the first position
+     * @return The element removed from the first position, or null if the queue is empty
      */
-    public String remove() {
-        // The string to be removed is stored in the variable, removed 
+    public E remove() {
+        // Nothing to remove: used must not go below zero
+        if (this.used == 0) {
+            return null;
+        }
+        // The element to be removed is stored in the variable, removed 
         // This variable is removed later
-        String removed = this.array[this.front];
+        @SuppressWarnings("unchecked")
+        E removed = (E) this.array[this.front];
         // The element in the first position is set to null
         this.array[this.front] = null;
+        if (this.metrics != null) {
+            this.metrics.recordRemoves(1);
+            long addedAt = this.addedAt[this.front];
+            if (addedAt != NOT_TIMED) {
+                this.metrics.recordLatency(System.nanoTime() - addedAt);
+            }
+        }
         // The new front element become the next element after the removed one
-        this.front = (this.front + 1) % this.array.length;
+        this.front = this.wrap(this.front + 1);
         // The amount of elements in the array is reduced 
         this.used--;
         // The removed element is returned
@@ -50,27 +112,246 @@ public class FastQ {
 
     /**
      * The goal is to return whether or not the addition of an element to the array was a success
-     * The string element in the parameter will be added at the back of the array 
+     * The element in the parameter will be added at the back of the array 
      * The addition will be done as long as there is space in the array
      * The variable back is updated after the addition 
      * The number of elements in the array is incremented with a successful addition
      * 
-     * @param string A string element to be added
-     * @return whether the parameter of type String was added to the array
+     * @param element An element to be added
+     * @return whether the element was added to the array
      */
-    public boolean add(String string) {
+    public boolean add(E element) {
+        // A growable queue makes room instead of failing
+        if (this.growable && this.used == this.array.length) {
+            this.grow(this.used + 1);
+        }
         boolean success = (this.used < this.array.length);
         // If the amount of elements in the array is less that the capacity
         if (success) {
-            // The new string is added at the back of the array
-            this.array[this.back] = string;
+            // The new element is added at the back of the array
+            this.array[this.back] = element;
+            if (this.metrics != null) {
+                this.addedAt[this.back] = this.timeAdd();
+            }
             // The index of the last used in the array is updated 
-            this.back = (this.back + 1) % this.array.length;
+            this.back = this.wrap(this.back + 1);
             // The amount of elements in the array is increased with the addition 
             this.used++;
         } 
+        if (this.metrics != null) {
+            if (success) {
+                this.metrics.recordAdds(1, this.used);
+            } else {
+                this.metrics.recordRejections(1);
+            }
+        }
         // The condition whether an element was added is returned
         return success;
     }
 
+    /**
+     * The goal is to add many elements at once, in order, at the back of the queue
+     * The free places after back, up to the end of the array and then from the start
+     * of the array, are filled with at most two System.arraycopy calls
+     * A fixed-size queue adds as many elements as there is room for; a growable queue
+     * grows first so that all of them fit
+     *
+     * @param source The array holding the elements to add
+     * @param offset The position in source of the first element
+     * @param length The number of elements to add
+     * @return The number of elements that were added
+     * @throws IndexOutOfBoundsException if offset and length don't fit in source; nothing is added
+     */
+    public int offer(E[] source, int offset, int length) {
+        // Check the whole range first, so a bad one can't stop the copy halfway through
+        Objects.checkFromIndexSize(offset, length, source.length);
+        if (this.growable && this.used + length > this.array.length) {
+            this.grow(this.used + length);
+        }
+        int count = Math.max(0, Math.min(length, this.array.length - this.used));
+        // First piece: from back up to the end of the array
+        int first = Math.min(count, this.array.length - this.back);
+        System.arraycopy(source, offset, this.array, this.back, first);
+        // Second piece: wraps around to the start of the array
+        System.arraycopy(source, offset + first, this.array, 0, count - first);
+        if (this.metrics != null) {
+            // One clock reading for the whole batch
+            long now = System.nanoTime();
+            Arrays.fill(this.addedAt, this.back, this.back + first, now);
+            Arrays.fill(this.addedAt, 0, count - first, now);
+        }
+        this.back = this.wrap(this.back + count);
+        this.used += count;
+        if (this.metrics != null) {
+            this.metrics.recordAdds(count, this.used);
+            if (count < length) {
+                this.metrics.recordRejections(length - count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds all the elements of the array, in order, at the back of the queue
+     *
+     * @param elements The elements to add
+     * @return The number of elements that were added
+     */
+    public int addAll(E[] elements) {
+        return this.offer(elements, 0, elements.length);
+    }
+
+    /**
+     * The goal is to remove as many elements as fit in the given array from the front
+     * of the queue, in order, filling it from position 0
+     *
+     * @param target The array that receives the elements
+     * @return The number of elements removed
+     */
+    public int poll(E[] target) {
+        return this.drainTo(target, 0, target.length);
+    }
+
+    /**
+     * The goal is to remove up to max elements from the front of the queue, in order,
+     * into the given array, with at most two System.arraycopy calls
+     *
+     * @param target The array that receives the elements
+     * @param offset The position in target for the first element
+     * @param max The largest number of elements to remove
+     * @return The number of elements removed
+     */
+    public int drainTo(E[] target, int offset, int max) {
+        int count = Math.max(0, Math.min(Math.min(max, this.used), target.length - offset));
+        int first = Math.min(count, this.array.length - this.front);
+        System.arraycopy(this.array, this.front, target, offset, first);
+        System.arraycopy(this.array, 0, target, offset + first, count - first);
+        this.release(count, first);
+        return count;
+    }
+
+    /**
+     * The goal is to remove up to max elements from the front of the queue, in order,
+     * and add them to the given collection
+     * Each of the (at most two) pieces of the circle is handed to the collection as a
+     * whole, which for collections such as ArrayList is a single array copy
+     *
+     * @param target The collection that receives the elements
+     * @param max The largest number of elements to remove
+     * @return The number of elements removed
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> target, int max) {
+        int count = Math.max(0, Math.min(max, this.used));
+        int first = Math.min(count, this.array.length - this.front);
+        // The array only ever holds elements of type E
+        List<E> elements = (List<E>) Arrays.asList(this.array);
+        target.addAll(elements.subList(this.front, this.front + first));
+        target.addAll(elements.subList(0, count - first));
+        this.release(count, first);
+        return count;
+    }
+
+    /** Empties the places of count elements drained from the front, first of them before the wrap */
+    private void release(int count, int first) {
+        Arrays.fill(this.array, this.front, this.front + first, null);
+        Arrays.fill(this.array, 0, count - first, null);
+        if (this.metrics != null && count > 0) {
+            // One clock reading for the whole batch
+            long now = System.nanoTime();
+            this.recordLatencies(this.front, this.front + first, now);
+            this.recordLatencies(0, count - first, now);
+            this.metrics.recordRemoves(count);
+        }
+        this.front = this.wrap(this.front + count);
+        this.used -= count;
+    }
+
+    /**
+     * Replaces the array by one at least twice as large, with room for capacity elements
+     * The circle is unrolled: the elements from front to the end of the old array and then
+     * from its start to back are copied to the start of the new array, so afterwards
+     * front is 0 and back is used
+     */
+    private void grow(int capacity) {
+        int length = Math.max(capacity, 2 * this.array.length);
+        // Keep the length a power of two so that wrap can use the mask
+        length = Integer.highestOneBit(length - 1) << 1;
+        Object[] larger = new Object[length];
+        int first = Math.min(this.used, this.array.length - this.front);
+        System.arraycopy(this.array, this.front, larger, 0, first);
+        System.arraycopy(this.array, 0, larger, first, this.used - first);
+        if (this.addedAt != null) {
+            // The times move with their elements
+            long[] largerAddedAt = new long[length];
+            System.arraycopy(this.addedAt, this.front, largerAddedAt, 0, first);
+            System.arraycopy(this.addedAt, 0, largerAddedAt, first, this.used - first);
+            this.addedAt = largerAddedAt;
+        }
+        this.array = larger;
+        this.size = length;
+        this.mask = length - 1;
+        this.front = 0;
+        this.back = this.used;
+    }
+
+    /** Records the waits of the elements removed from places start to end - 1 */
+    private void recordLatencies(int start, int end, long now) {
+        for (int i = start; i < end; i++) {
+            if (this.addedAt[i] != NOT_TIMED) {
+                this.metrics.recordLatency(now - this.addedAt[i]);
+            }
+        }
+    }
+
+    /** Returns the time to remember for an element added by add: the clock, or NOT_TIMED */
+    private long timeAdd() {
+        if (--this.untilSample > 0) {
+            return NOT_TIMED;
+        }
+        this.untilSample = this.sampleEvery;
+        return System.nanoTime();
+    }
+
+    /**
+     * Turns on metrics, timing the wait of one element out of every sampleEvery added
+     * with add (elements added by offer share a single clock reading and are always
+     * timed). The counters are exact whatever the sampling. The elements already in
+     * the queue are counted as added now.
+     *
+     * @param sampleEvery 1 to time every element, or more to read the clock less often
+     * @return The metrics of this queue, which may be read from any thread
+     */
+    public FastQMetrics enableMetrics(int sampleEvery) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.untilSample = 1;
+        if (this.metrics == null) {
+            this.addedAt = new long[this.array.length];
+            Arrays.fill(this.addedAt, System.nanoTime());
+            this.metrics = new FastQMetrics();
+        }
+        return this.metrics;
+    }
+
+    /** Turns on metrics, timing every element */
+    public FastQMetrics enableMetrics() {
+        return this.enableMetrics(1);
+    }
+
+    /** Turns off metrics and forgets the times at which elements were added */
+    public void disableMetrics() {
+        this.metrics = null;
+        this.addedAt = null;
+    }
+
+    /** Returns the metrics of this queue, or null when they are off */
+    public FastQMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /** Brings a position that went past the end of the array back around to the start */
+    private int wrap(int position) {
+        return (this.mask >= 0) ? (position & this.mask) : (position % this.array.length);
+    }
+
 } // class FastQ
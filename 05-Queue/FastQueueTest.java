@@ -1,18 +1,34 @@
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
 public class FastQTest {
-   private FastQ test = new FastQ();
+   private FastQ<String> test = new FastQ<String>();
 
    @Test
    public void testRemoveEmpty() {
       assertNull(test.remove());
    }
 
+   @Test
+   public void testRemoveEmptyKeepsCapacity() {
+      assertNull(test.remove());
+      assertTrue(test.add("A"));
+      assertTrue(test.add("B"));
+      assertTrue(test.add("C"));
+      assertTrue(test.add("D"));
+      assertFalse(test.add("E"));
+      assertEquals(test.remove(), "A");
+   }
+
    @Test
    public void testAdd() {
       assertTrue(test.add("A"));
@@ -34,4 +50,103 @@ public class FastQTest {
       assertEquals(test.remove(), "D");
       assertNull(test.remove());
    }
+
+   @Test
+   public void testGrowableAdd() {
+      FastQ<String> growable = new FastQ<String>(3, true);
+      growable.add("A");
+      growable.add("B");
+      growable.add("C");
+      assertEquals(growable.remove(), "A");
+      for (int i = 0; i < 10; i++) {
+         assertTrue(growable.add("X" + i));
+      }
+      assertEquals(growable.remove(), "B");
+      assertEquals(growable.remove(), "C");
+      for (int i = 0; i < 10; i++) {
+         assertEquals(growable.remove(), "X" + i);
+      }
+      assertNull(growable.remove());
+   }
+
+   @Test
+   public void testAddAllWrapsAround() {
+      test.add("A");
+      test.add("B");
+      test.remove();
+      test.remove();
+      assertEquals(3, test.addAll(new String[] { "C", "D", "E" }));
+      assertEquals(1, test.addAll(new String[] { "F", "G" }));
+      String[] drained = new String[4];
+      assertEquals(4, test.drainTo(drained, 0, 10));
+      assertArrayEquals(new String[] { "C", "D", "E", "F" }, drained);
+      assertNull(test.remove());
+   }
+
+   @Test
+   public void testDrainToCollection() {
+      FastQ<String> growable = new FastQ<String>(2, true);
+      growable.add("A");
+      growable.remove();
+      growable.addAll(new String[] { "B", "C", "D" });
+      List<String> drained = new ArrayList<String>();
+      assertEquals(2, growable.drainTo(drained, 2));
+      assertEquals(Arrays.asList("B", "C"), drained);
+      assertEquals(growable.remove(), "D");
+   }
+
+   @Test
+   public void testOfferPollBatch() {
+      FastQ<Integer> numbers = new FastQ<Integer>(4);
+      Integer[] source = { 1, 2, 3, 4, 5 };
+      assertEquals(2, numbers.offer(source, 0, 2));
+      assertEquals(Integer.valueOf(1), numbers.remove());
+      assertEquals(3, numbers.offer(source, 2, 3));
+      Integer[] target = new Integer[3];
+      assertEquals(3, numbers.poll(target));
+      assertArrayEquals(new Integer[] { 2, 3, 4 }, target);
+      assertEquals(Integer.valueOf(5), numbers.remove());
+      assertNull(numbers.remove());
+   }
+
+   @Test
+   public void testOfferBadRangeAddsNothing() {
+      test.add("A");
+      test.add("B");
+      test.add("C");
+      test.remove();
+      test.remove();
+      test.remove();
+      // back is now at the last place, so a good range would be copied in two pieces
+      try {
+         test.offer(new String[] { "X", "Y", "Z" }, 1, 3);
+         assertTrue(false);
+      } catch (IndexOutOfBoundsException e) {
+         // expected
+      }
+      assertNull(test.remove());
+      assertEquals(4, test.addAll(new String[] { "D", "E", "F", "G" }));
+      assertEquals("D", test.remove());
+   }
+
+   @Test
+   public void testMetrics() {
+      FastQMetrics metrics = test.enableMetrics();
+      test.add("A");
+      test.add("B");
+      test.remove();
+      assertEquals(3, test.offer(new String[] { "C", "D", "E", "F" }, 0, 4));
+      assertFalse(test.add("G"));
+      assertEquals(2, test.poll(new String[2]));
+      FastQMetrics.Snapshot snapshot = metrics.snapshot();
+      assertEquals(5, snapshot.getAdds());
+      assertEquals(3, snapshot.getRemoves());
+      assertEquals(2, snapshot.getRejections());
+      assertEquals(4, snapshot.getHighWaterMark());
+      long removed = 0;
+      for (long count : snapshot.getHistogram()) {
+         removed += count;
+      }
+      assertEquals(3, removed);
+   }
 }
@@ -0,0 +1,187 @@
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A circular queue of int values with the same methods as FastQ.
+ *
+ * Putting numbers in a {@code FastQ<Integer>} boxes every value into an object. Here
+ * the values sit directly in an int[] ring, so adding and removing never creates
+ * an object, and the batch methods offer and poll are at most two
+ * System.arraycopy calls.
+ *
+ * Since an int can't be null, remove throws NoSuchElementException on an empty
+ * queue instead of returning null; check isEmpty first, or use poll, which just
+ * returns how many values it removed.
+ */
+public class IntFastQ {
+    private int[] array;
+    private int used;
+    private int front;
+    private int back;
+    /** When true, add makes the array larger instead of failing when it is full */
+    private boolean growable;
+    /** array.length - 1 when the length is a power of two, so wrapping is a bit mask; -1 otherwise */
+    private int mask;
+
+    private static final int DEFAULT_SIZE = 4;
+
+    /**
+     * Full constructor. A growable queue never rejects an add: when the array is
+     * full it is replaced by one twice as large. Its size is rounded up to a power
+     * of two.
+     */
+    public IntFastQ(int size, boolean growable) {
+        if (size < 1) {
+            size = DEFAULT_SIZE;
+        }
+        if (growable) {
+            // Round up to the next power of two
+            size = (size == 1) ? 1 : Integer.highestOneBit(size - 1) << 1;
+        }
+        this.array = new int[size];
+        this.used = 0;
+        this.front = 0;
+        this.back = 0;
+        this.growable = growable;
+        this.mask = (Integer.bitCount(size) == 1) ? size - 1 : -1;
+    } // full constructor
+
+    /** Fixed-size constructor: add fails once the queue holds size values */
+    public IntFastQ(int size) {
+        this(size, false);
+    } // fixed-size constructor
+
+    /** Default constructor */
+    public IntFastQ() {
+        this(DEFAULT_SIZE);
+    } // default constructor
+
+    /** Returns the number of values in the queue */
+    public int size() {
+        return this.used;
+    }
+
+    /** Returns whether the queue holds no values */
+    public boolean isEmpty() {
+        return this.used == 0;
+    }
+
+    /**
+     * Removes the value at the front of the queue
+     *
+     * @return The value removed from the front
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int remove() {
+        if (this.used == 0) {
+            throw new NoSuchElementException("The queue is empty");
+        }
+        int removed = this.array[this.front];
+        this.front = this.wrap(this.front + 1);
+        this.used--;
+        return removed;
+    }
+
+    /**
+     * Adds a value at the back of the queue
+     *
+     * @param value The value to be added
+     * @return whether the value was added; false if a fixed-size queue is full
+     */
+    public boolean add(int value) {
+        if (this.growable && this.used == this.array.length) {
+            this.grow(this.used + 1);
+        }
+        boolean success = (this.used < this.array.length);
+        if (success) {
+            this.array[this.back] = value;
+            this.back = this.wrap(this.back + 1);
+            this.used++;
+        }
+        return success;
+    }
+
+    /**
+     * Adds many values at once, in order, at the back of the queue, with at most two
+     * System.arraycopy calls
+     * A fixed-size queue adds as many values as there is room for; a growable queue
+     * grows first so that all of them fit
+     *
+     * @param source The array holding the values to add
+     * @param offset The position in source of the first value
+     * @param length The number of values to add
+     * @return The number of values that were added
+     * @throws IndexOutOfBoundsException if offset and length don't fit in source; nothing is added
+     */
+    public int offer(int[] source, int offset, int length) {
+        // Check the whole range first, so a bad one can't stop the copy halfway through
+        Objects.checkFromIndexSize(offset, length, source.length);
+        if (this.growable && this.used + length > this.array.length) {
+            this.grow(this.used + length);
+        }
+        int count = Math.max(0, Math.min(length, this.array.length - this.used));
+        // First piece: from back up to the end of the array
+        int first = Math.min(count, this.array.length - this.back);
+        System.arraycopy(source, offset, this.array, this.back, first);
+        // Second piece: wraps around to the start of the array
+        System.arraycopy(source, offset + first, this.array, 0, count - first);
+        this.back = this.wrap(this.back + count);
+        this.used += count;
+        return count;
+    }
+
+    /**
+     * Removes as many values as fit in the given array from the front of the queue,
+     * in order, filling it from position 0
+     *
+     * @param target The array that receives the values
+     * @return The number of values removed
+     */
+    public int poll(int[] target) {
+        return this.drainTo(target, 0, target.length);
+    }
+
+    /**
+     * Removes up to max values from the front of the queue, in order, into the given
+     * array, with at most two System.arraycopy calls
+     *
+     * @param target The array that receives the values
+     * @param offset The position in target for the first value
+     * @param max The largest number of values to remove
+     * @return The number of values removed
+     */
+    public int drainTo(int[] target, int offset, int max) {
+        int count = Math.max(0, Math.min(Math.min(max, this.used), target.length - offset));
+        int first = Math.min(count, this.array.length - this.front);
+        System.arraycopy(this.array, this.front, target, offset, first);
+        System.arraycopy(this.array, 0, target, offset + first, count - first);
+        // No references to clear: the places are simply reused
+        this.front = this.wrap(this.front + count);
+        this.used -= count;
+        return count;
+    }
+
+    /**
+     * Replaces the array by one at least twice as large, with room for capacity values
+     * The circle is unrolled, as in FastQ, so afterwards front is 0 and back is used
+     */
+    private void grow(int capacity) {
+        int length = Math.max(capacity, 2 * this.array.length);
+        // Keep the length a power of two so that wrap can use the mask
+        length = Integer.highestOneBit(length - 1) << 1;
+        int[] larger = new int[length];
+        int first = Math.min(this.used, this.array.length - this.front);
+        System.arraycopy(this.array, this.front, larger, 0, first);
+        System.arraycopy(this.array, 0, larger, first, this.used - first);
+        this.array = larger;
+        this.mask = length - 1;
+        this.front = 0;
+        this.back = this.used;
+    }
+
+    /** Brings a position that went past the end of the array back around to the start */
+    private int wrap(int position) {
+        return (this.mask >= 0) ? (position & this.mask) : (position % this.array.length);
+    }
+
+} // class IntFastQ
@@ -0,0 +1,162 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A FastQ that any number of threads can add to and remove from at the same
+ * time, without locks. This is Dmitry Vyukov's bounded MPMC queue.
+ *
+ * The elements sit in a circular array as in FastQ, and every slot also has a
+ * sequence number that says whose turn it is:
+ * 1. A slot whose sequence equals the tail counter is free for the producer
+ *    holding that tail value.
+ * 2. After storing its element, the producer sets the sequence to tail + 1,
+ *    which tells the consumer holding head == tail that the element is ready.
+ * 3. After taking the element, the consumer sets the sequence to
+ *    head + capacity, which frees the slot for the producer one lap later.
+ * A thread claims a position by moving tail (or head) forward with
+ * compare-and-set; threads that lose the race simply try the next position.
+ * Since each slot has its own sequence, producers and consumers only contend
+ * on the counter, never on each other's slots.
+ *
+ * As in SpscFastQ, head and tail are padded with 128 bytes on each side so the
+ * producers' and consumers' counters never share a cache line.
+ *
+ * @param <E> The type of the elements
+ */
+public class MpmcFastQ<E> extends MpmcFastQPadding2 {
+
+    private static final int DEFAULT_SIZE = 4;
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(MpmcFastQHead.class, "head", long.class);
+            TAIL = lookup.findVarHandle(MpmcFastQTail.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] array;
+    /** Sequence number of each slot */
+    private final long[] sequences;
+    private final int mask;
+
+    /** Full constructor. The size is rounded up to a power of two, and is at least 2. */
+    public MpmcFastQ(int size) {
+        if (size < 1) {
+            size = DEFAULT_SIZE;
+        }
+        // With a single slot, "free for the next lap" and "ready" would be the same sequence
+        size = Math.max(2, Integer.highestOneBit(size - 1) << 1);
+        this.array = new Object[size];
+        this.sequences = new long[size];
+        for (int i = 0; i < size; i++) {
+            this.sequences[i] = i;
+        }
+        this.mask = size - 1;
+    } // full constructor
+
+    /** Default constructor */
+    public MpmcFastQ() {
+        this(DEFAULT_SIZE);
+    } // default constructor
+
+    /**
+     * Adds an element at the back of the queue. Safe to call from any thread.
+     *
+     * @param element An element to be added
+     * @return whether the element was added; false if the queue is full
+     */
+    public boolean add(E element) {
+        long t = (long) TAIL.getOpaque(this);
+        while (true) {
+            int index = (int) t & this.mask;
+            long difference = (long) SEQUENCE.getAcquire(this.sequences, index) - t;
+            if (difference == 0) {
+                // The slot is free for position t: try to claim it
+                if (TAIL.weakCompareAndSet(this, t, t + 1)) {
+                    this.array[index] = element;
+                    SEQUENCE.setRelease(this.sequences, index, t + 1);
+                    return true;
+                }
+                t = (long) TAIL.getOpaque(this);
+            } else if (difference < 0) {
+                // The slot still holds the element from one lap ago: the queue is full
+                return false;
+            } else {
+                // Another producer claimed t already: move on to the current tail
+                t = (long) TAIL.getOpaque(this);
+            }
+        }
+    }
+
+    /**
+     * Removes the element at the front of the queue. Safe to call from any thread.
+     *
+     * @return The element removed from the front, or null if the queue is empty
+     */
+    public E remove() {
+        long h = (long) HEAD.getOpaque(this);
+        while (true) {
+            int index = (int) h & this.mask;
+            long difference = (long) SEQUENCE.getAcquire(this.sequences, index) - (h + 1);
+            if (difference == 0) {
+                // The element for position h is ready: try to claim it
+                if (HEAD.weakCompareAndSet(this, h, h + 1)) {
+                    @SuppressWarnings("unchecked")
+                    E removed = (E) this.array[index];
+                    this.array[index] = null;
+                    SEQUENCE.setRelease(this.sequences, index, h + this.mask + 1);
+                    return removed;
+                }
+                h = (long) HEAD.getOpaque(this);
+            } else if (difference < 0) {
+                // No producer has filled the slot yet: the queue is empty
+                return null;
+            } else {
+                // Another consumer claimed h already: move on to the current head
+                h = (long) HEAD.getOpaque(this);
+            }
+        }
+    }
+
+    /** Returns the number of elements in the queue; only a snapshot while other threads are busy */
+    public int size() {
+        long h = (long) HEAD.getVolatile(this);
+        long t = (long) TAIL.getVolatile(this);
+        return (int) Math.max(0, Math.min(t - h, this.array.length));
+    }
+
+} // class MpmcFastQ
+
+/** 128 bytes of padding in front of head */
+abstract class MpmcFastQPadding0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+}
+
+/** Counter claimed by consumers */
+abstract class MpmcFastQHead extends MpmcFastQPadding0 {
+    /** Number of positions claimed by remove so far */
+    long head;
+}
+
+/** 128 bytes of padding between head and tail */
+abstract class MpmcFastQPadding1 extends MpmcFastQHead {
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+}
+
+/** Counter claimed by producers */
+abstract class MpmcFastQTail extends MpmcFastQPadding1 {
+    /** Number of positions claimed by add so far */
+    long tail;
+}
+
+/** 128 bytes of padding after tail */
+abstract class MpmcFastQPadding2 extends MpmcFastQTail {
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+}
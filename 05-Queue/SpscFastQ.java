@@ -0,0 +1,144 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A FastQ for exactly one producer thread (the only one calling add) and one
+ * consumer thread (the only one calling remove), without locks.
+ *
+ * Like FastQ, the elements sit in a circular array. Instead of front, back and
+ * used, the queue keeps two counters that only ever grow: head counts the
+ * elements removed and tail counts the elements added. The queue holds
+ * tail - head elements, and counter c lives at array[c & mask]. Each counter has
+ * a single writer, so no compare-and-set is needed: the producer stores the
+ * element and then publishes tail + 1 with a release write, and the consumer
+ * reads tail with an acquire read before reading the element (and the same the
+ * other way around for head).
+ *
+ * head and tail are written by different threads at a high rate. If they shared
+ * a cache line, every write by one thread would take the line away from the
+ * other one ("false sharing"). So each counter sits between 128 bytes of unused
+ * fields, inherited from the padding classes below since the JVM lays out the
+ * fields of a superclass before those of its subclasses. Each side also keeps a
+ * cached copy of the other side's counter and only rereads the real one when the
+ * cache says the queue looks full (or empty).
+ *
+ * @param <E> The type of the elements
+ */
+public class SpscFastQ<E> extends SpscFastQPadding2 {
+
+    private static final int DEFAULT_SIZE = 4;
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(SpscFastQConsumer.class, "head", long.class);
+            TAIL = lookup.findVarHandle(SpscFastQProducer.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] array;
+    private final int mask;
+
+    /** Full constructor. The size is rounded up to a power of two. */
+    public SpscFastQ(int size) {
+        if (size < 1) {
+            size = DEFAULT_SIZE;
+        }
+        size = (size == 1) ? 1 : Integer.highestOneBit(size - 1) << 1;
+        this.array = new Object[size];
+        this.mask = size - 1;
+    } // full constructor
+
+    /** Default constructor */
+    public SpscFastQ() {
+        this(DEFAULT_SIZE);
+    } // default constructor
+
+    /**
+     * Adds an element at the back of the queue. Must only be called by the producer thread.
+     *
+     * @param element An element to be added
+     * @return whether the element was added; false if the queue is full
+     */
+    public boolean add(E element) {
+        long t = this.tail;
+        if (t - this.headCache >= this.array.length) {
+            // Looks full: check again with the consumer's latest head
+            this.headCache = (long) HEAD.getAcquire(this);
+            if (t - this.headCache >= this.array.length) {
+                return false;
+            }
+        }
+        this.array[(int) t & this.mask] = element;
+        // Release: the element is visible before the new tail
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    /**
+     * Removes the element at the front of the queue. Must only be called by the consumer thread.
+     *
+     * @return The element removed from the front, or null if the queue is empty
+     */
+    public E remove() {
+        long h = this.head;
+        if (h >= this.tailCache) {
+            // Looks empty: check again with the producer's latest tail
+            this.tailCache = (long) TAIL.getAcquire(this);
+            if (h >= this.tailCache) {
+                return null;
+            }
+        }
+        int index = (int) h & this.mask;
+        @SuppressWarnings("unchecked")
+        E removed = (E) this.array[index];
+        this.array[index] = null;
+        // Release: the slot is emptied before the producer can reuse it
+        HEAD.setRelease(this, h + 1);
+        return removed;
+    }
+
+    /** Returns the number of elements in the queue; only a snapshot while other threads are busy */
+    public int size() {
+        long h = (long) HEAD.getAcquire(this);
+        long t = (long) TAIL.getAcquire(this);
+        return (int) Math.max(0, t - h);
+    }
+
+} // class SpscFastQ
+
+/** 128 bytes of padding in front of the consumer's fields */
+abstract class SpscFastQPadding0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+}
+
+/** Fields written by the consumer thread */
+abstract class SpscFastQConsumer extends SpscFastQPadding0 {
+    /** Number of elements removed so far */
+    long head;
+    /** Consumer's last known value of tail */
+    long tailCache;
+}
+
+/** 128 bytes of padding between the consumer's and the producer's fields */
+abstract class SpscFastQPadding1 extends SpscFastQConsumer {
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+}
+
+/** Fields written by the producer thread */
+abstract class SpscFastQProducer extends SpscFastQPadding1 {
+    /** Number of elements added so far */
+    long tail;
+    /** Producer's last known value of head */
+    long headCache;
+}
+
+/** 128 bytes of padding after the producer's fields */
+abstract class SpscFastQPadding2 extends SpscFastQProducer {
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+}